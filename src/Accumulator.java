@@ -0,0 +1,86 @@
+// The network's first layer for a board and the positions before it, one entry per move made on the board.
+// makeMove only notes the features its move changed and unmakeMove drops the entry, so the many positions
+// the search passes through without evaluating cost next to nothing. An evaluated position brings its entry
+// up to date from the closest earlier one which has its sums, usually its parent.
+class Accumulator {
+    // moves made past that many forget the older entries, the position is then summed from its pieces
+    private static final int CAPACITY = 256;
+    private static final byte DELTA = 0, COMPUTED = 1, STALE = 2;
+
+    private final Network network;
+    private final short[][] values;
+    // entry 0 is never DELTA, so every entry has one to start from
+    private final byte[] states = new byte[CAPACITY];
+    // per entry: the feature the moving piece left, the one it arrived as, the pieces it captured
+    private final int[] removed = new int[CAPACITY];
+    private final int[] added = new int[CAPACITY];
+    private final int[] capturedMen = new int[CAPACITY];
+    private final int[] capturedKings = new int[CAPACITY];
+    private final boolean[] isAI = new boolean[CAPACITY];
+    // clipped first layer, reused by every evaluation
+    private final short[] activations;
+    private int top;
+
+    Accumulator(Network network) {
+        this.network = network;
+        values = new short[CAPACITY][network.hidden];
+        activations = new short[network.hidden];
+        states[0] = STALE;
+    }
+
+    // the board was set up anew
+    void reset() {
+        top = 0;
+        states[0] = STALE;
+    }
+
+    // board: the position after the move
+    void push(Board board, MoveUndo undo) {
+        if (top == CAPACITY - 1) {
+            reset();
+            return;
+        }
+        top++;
+        states[top] = DELTA;
+
+        var isKing = (board.kings(undo.isAI) & 1 << undo.to) != 0;
+        var men = undo.isAI ? Board.AI_MEN : Board.PLAYER_MEN;
+        var kings = undo.isAI ? Board.AI_KINGS : Board.PLAYER_KINGS;
+        removed[top] = Network.feature(isKing && !undo.promoted ? kings : men, undo.from);
+        added[top] = Network.feature(isKing ? kings : men, undo.to);
+        capturedMen[top] = undo.capturedMen;
+        capturedKings[top] = undo.capturedKings;
+        isAI[top] = undo.isAI;
+    }
+
+    void pop() {
+        if (top > 0) top--;
+        else states[0] = STALE;
+    }
+
+    // good for the AI, in men
+    float evaluate(Board board) {
+        return network.evaluate(current(board), activations);
+    }
+
+    // the sums of the board's position
+    short[] current(Board board) {
+        var base = top;
+        while (states[base] == DELTA) base--;
+
+        if (states[base] == STALE) {
+            network.refresh(board, values[top]);
+            states[top] = COMPUTED;
+            return values[top];
+        }
+        for (int i = base + 1; i <= top; i++) {
+            System.arraycopy(values[i - 1], 0, values[i], 0, network.hidden);
+            network.addFeature(values[i], removed[i], -1);
+            network.addFeature(values[i], added[i], 1);
+            network.addFeatures(values[i], isAI[i] ? Board.PLAYER_MEN : Board.AI_MEN, capturedMen[i], -1);
+            network.addFeatures(values[i], isAI[i] ? Board.PLAYER_KINGS : Board.AI_KINGS, capturedKings[i], -1);
+            states[i] = COMPUTED;
+        }
+        return values[top];
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// Checks the board's Accumulator against summing the network's first layer from the pieces: a random network,
+// a random walk of makeMove and unmakeMove, and in the positions it checks the lazily updated sums and the
+// evaluation must equal a full refresh. The walk goes deeper than the accumulator's capacity, so its reset is covered.
+// usage: java AccumulatorCheck [checks] [seed]
+public class AccumulatorCheck {
+    private static final int HIDDEN = 32;
+    private static final int HIDDEN2 = 8;
+    // moves made on the board at most, past Accumulator.CAPACITY
+    private static final int MAX_DEPTH = 300;
+    // chance to make a move rather than take one back, the phases take turns: one wanders near the start,
+    // the other climbs to MAX_DEPTH and stays around it
+    private static final double[] MAKE_CHANCES = {0.5, 0.7};
+    private static final int PHASE_STEPS = 20_000;
+    private static final double CHECK_CHANCE = 0.5;
+
+    public static void main(String[] args) {
+        var checks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        var random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        var network = randomNetwork(random);
+        var expected = new short[HIDDEN];
+        var activations = new short[HIDDEN];
+        var moves = new long[Board.MAX_MOVES];
+        var undos = new MoveUndo[MAX_DEPTH];
+        for (int i = 0; i < MAX_DEPTH; i++) undos[i] = new MoveUndo();
+
+        var board = new Board().withNetwork(network);
+        var isAIsTurn = false;
+        var depth = 0;
+        var done = 0;
+        var deepest = 0;
+        for (long step = 0; done < checks; step++) {
+            var count = board.genAllMoves(isAIsTurn, moves);
+            var makeChance = MAKE_CHANCES[(int) (step / PHASE_STEPS % MAKE_CHANCES.length)];
+            if (count > 0 && depth < MAX_DEPTH && (depth == 0 || random.nextDouble() < makeChance)) {
+                board.makeMove(moves[random.nextInt(count)], undos[depth++]);
+                isAIsTurn = !isAIsTurn;
+                deepest = Math.max(deepest, depth);
+            } else {
+                // the start position has moves, so depth > 0 here
+                board.unmakeMove(undos[--depth]);
+                isAIsTurn = !isAIsTurn;
+            }
+            if (random.nextDouble() >= CHECK_CHANCE) continue;
+
+            network.refresh(board, expected);
+            var sums = board.accumulator.current(board);
+            if (!Arrays.equals(sums, expected)) Checks.fail("first layer sums differ from a refresh" + where(step, depth));
+            var score = board.accumulator.evaluate(board);
+            if (score != network.evaluate(expected, activations)) Checks.fail("evaluation " + score + " differs from a refresh" + where(step, depth));
+            done++;
+        }
+        System.out.println(checks + " positions ok, walks up to " + deepest + " moves deep");
+    }
+
+    // weights inside the bounds NetworkTrainer keeps, so the int16 sums do not overflow
+    private static Network randomNetwork(Random random) {
+        var w1 = randomShorts(random, Network.FEATURES * HIDDEN, 2 * Network.QA);
+        var b1 = randomShorts(random, HIDDEN, Network.QA);
+        var w2 = randomShorts(random, HIDDEN2 * HIDDEN, 2 * Network.QB);
+        var b2 = new int[HIDDEN2];
+        for (int i = 0; i < HIDDEN2; i++) b2[i] = random.nextInt(2 * Network.QA * Network.QB + 1) - Network.QA * Network.QB;
+        var w3 = randomShorts(random, HIDDEN2, 2 * Network.QB);
+        return new Network(HIDDEN, HIDDEN2, w1, b1, w2, b2, w3, random.nextInt(Network.QA * Network.QB));
+    }
+
+    // -bound .. bound
+    private static short[] randomShorts(Random random, int count, int bound) {
+        var values = new short[count];
+        for (int i = 0; i < count; i++) values[i] = (short) (random.nextInt(2 * bound + 1) - bound);
+        return values;
+    }
+
+    private static String where(long step, int depth) {
+        return ", step " + step + " at " + depth + " moves deep";
+    }
+}
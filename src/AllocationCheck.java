@@ -0,0 +1,35 @@
+import java.lang.management.ManagementFactory;
+
+// Checks that a fixed depth search allocates (almost) nothing once the search objects exist.
+// usage: java AllocationCheck [depth]
+public class AllocationCheck {
+    // SearchResult with its arrays and lines, and a SearchIterationEvent per depth: 400 bytes at depth 10
+    // a single allocation per node would be megabytes
+    private static final long MAX_BYTES = 320;
+    private static final long MAX_BYTES_PER_DEPTH = 16;
+
+    public static void main(String[] args) {
+        var depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var threadId = Thread.currentThread().getId();
+
+        var board = new Board();
+        board.makeMove(new int[]{2, 2}, new int[]{3, 3});
+
+        // warm up, so the JIT has compiled the search before measuring
+        for (int i = 0; i < 3; i++) newSearch(board, depth).iterativeDeepening(depth, true, null);
+
+        var search = newSearch(board, depth);
+        var before = threadBean.getThreadAllocatedBytes(threadId);
+        search.iterativeDeepening(depth, true, null);
+        var allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        var maxBytes = MAX_BYTES + MAX_BYTES_PER_DEPTH * depth;
+        System.out.println("depth " + depth + " search allocated " + allocated + " bytes");
+        if (allocated > maxBytes) Checks.fail("more than " + maxBytes + " bytes");
+    }
+
+    private static Search newSearch(Board board, int depth) {
+        return new Search(new Board(board), new TranspositionTable(16), null, SearchOptions.all(), null, TimeManager.fixedDepth(depth));
+    }
+}
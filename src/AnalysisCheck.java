@@ -0,0 +1,66 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashSet;
+
+// Drives Engine.analyze with a listener over the benchmark positions, for both sides, one and several lines,
+// one and two threads. Every result the listener gets is formatted, stats included, and must be whole:
+// one result per depth in order, per depth progress in the stats, lines best first with distinct moves
+// and variations starting with their move. The final result must be the last one the listener saw.
+// usage: java AnalysisCheck [depth]
+public class AnalysisCheck {
+    private static final int MIN_DEPTH = 5;
+    private static final int[] LINES = {1, 3};
+    private static final int[] THREADS = {1, 2};
+
+    public static void main(String[] args) {
+        var maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        // formatted like the game does, into nothing
+        var print = AnalysisListener.print(new PrintStream(OutputStream.nullOutputStream()));
+        var results = 0;
+
+        for (var position : Benchmarks.positions()) {
+            for (var isAIsTurn : new boolean[]{true, false}) {
+                // Benchmarks gives positions with the AI to move, the player's side is the flipped one
+                var board = isAIsTurn ? position : position.flipped();
+                for (var lines : LINES) {
+                    for (var threads : THREADS) {
+                        var engine = new Engine(new TranspositionTable(8), null, null, SearchOptions.all(), null, threads, MIN_DEPTH);
+                        var seen = new SearchResult[1];
+                        var where = " (" + lines + " lines, " + threads + " threads, " + (isAIsTurn ? "AI" : "player") + " to move)";
+
+                        var result = engine.analyze(board, isAIsTurn, null, TimeManager.fixedDepth(maxDepth), lines, progress -> {
+                            print.depthCompleted(progress);
+                            var expectedDepth = seen[0] == null ? MIN_DEPTH : seen[0].depth + 1;
+                            if (progress.depth != expectedDepth) Checks.fail("depth " + progress.depth + " after " + expectedDepth + where);
+                            checkResult(progress, lines, where);
+                            seen[0] = progress;
+                        });
+                        checkResult(result, lines, where);
+                        if (seen[0] == null || seen[0].depth != maxDepth) Checks.fail("the listener did not see depth " + maxDepth + where);
+                        if (result.move != seen[0].move || result.depth != seen[0].depth) Checks.fail("the result is not the last depth" + where);
+                        results++;
+                    }
+                }
+            }
+        }
+        System.out.println(results + " analyses ok");
+    }
+
+    private static void checkResult(SearchResult result, int lines, String where) {
+        where = " at depth " + result.depth + where;
+        // throws if the stats lack their iterations
+        var stats = result.stats.toString();
+        if (result.stats.depth != result.depth) Checks.fail("stats at depth " + result.stats.depth + where);
+        if (result.stats.iterationNodes[result.depth] <= 0) Checks.fail("no nodes for the depth in " + stats + where);
+
+        if (result.lines.length == 0 || result.lines.length > lines) Checks.fail(result.lines.length + " lines" + where);
+        if (result.lines[0].move != result.move) Checks.fail("the first line is not the move" + where);
+        var moves = new HashSet<Long>();
+        for (int i = 0; i < result.lines.length; i++) {
+            var line = result.lines[i];
+            if (!moves.add(line.move)) Checks.fail("line " + (i + 1) + " repeats a move" + where);
+            if (line.pv.length == 0 || line.pv[0] != line.move) Checks.fail("line " + (i + 1) + " does not start with its move" + where);
+            if (i > 0 && line.score > result.lines[i - 1].score) Checks.fail("line " + (i + 1) + " scores above the one before" + where);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Told about a running search after every completed depth, see Engine.analyze.
+// Called on the searching thread, so it should return quickly.
+interface AnalysisListener {
+    // result: everything found so far, depth is the depth just completed
+    void depthCompleted(SearchResult result);
+
+    // what the game prints while the AI thinks
+    static AnalysisListener print(PrintStream out) {
+        return result -> {
+            out.println("At depth " + result.depth + ":");
+            out.println("Score: " + result.score);
+            out.println("From: " + Arrays.toString(result.fromXY));
+            out.println("To: " + Arrays.toString(result.toXY));
+            out.println("PV: " + Move.format(result.pv, result.pv.length));
+            for (int i = 1; i < result.lines.length; i++) {
+                var line = result.lines[i];
+                out.println("Line " + (i + 1) + ": " + line.score + " " + Move.format(line.pv, line.pv.length));
+            }
+            out.println();
+        };
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+// Micro benchmarks for move generation, make / unmake, the copy constructor and fixed depth searches.
+// JMH refuses benchmarks in the default package, so this follows its scheme by hand:
+// warm up rounds, then measured rounds of fixed length, reporting the mean and best time per operation.
+// usage: java Benchmarks [name filter]
+public class Benchmarks {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final long ROUND_NANOS = 500_000_000L;
+    private static final int SEARCH_DEPTH = 9;
+    // the same positions on every run: random games from the start with a fixed seed
+    private static final long POSITION_SEED = 42;
+    private static final int[] POSITION_PLIES = {1, 5, 9, 13, 17, 21, 25, 29};
+
+    // every result ends up here, so the JIT can not remove the measured code
+    private static long sink;
+
+    public static void main(String[] args) {
+        var filter = args.length > 0 ? args[0] : "";
+        var positions = positions();
+
+        if ("genAllMoves".contains(filter)) run("genAllMoves", () -> genAllMoves(positions));
+        if ("genAllPossibleMoves".contains(filter)) run("genAllPossibleMoves", () -> genAllPossibleMoves(positions));
+        if ("makeUnmakeMove".contains(filter)) run("makeUnmakeMove", () -> makeUnmakeMove(positions));
+        if ("copyBoard".contains(filter)) run("copyBoard", () -> copyBoard(positions));
+        if ("search".contains(filter)) run("search", () -> search(positions));
+
+        System.out.println("(sink " + sink + ")");
+    }
+
+    // positions with the AI to move, so they can be searched
+    static List<Board> positions() {
+        var random = new Random(POSITION_SEED);
+        var positions = new ArrayList<Board>();
+        var moves = new long[Board.MAX_MOVES];
+
+        for (var plies : POSITION_PLIES) {
+            var board = new Board();
+            var isAIsTurn = false;
+            for (int ply = 0; ply < plies; ply++) {
+                var count = board.genAllMoves(isAIsTurn, moves);
+                if (count == 0) break;
+                board.makeMove(moves[random.nextInt(count)]);
+                isAIsTurn = !isAIsTurn;
+            }
+            if (isAIsTurn && board.gameIsOver(true) == -1) positions.add(board);
+        }
+        return positions;
+    }
+
+    // operation returns how many operations it did
+    private static void run(String name, LongSupplier operation) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) round(operation);
+
+        var total = 0.0;
+        var best = Double.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            var nanosPerOperation = round(operation);
+            total += nanosPerOperation;
+            best = Math.min(best, nanosPerOperation);
+        }
+        System.out.printf("%-20s %14.1f ns/op mean %14.1f ns/op best%n", name, total / MEASURED_ROUNDS, best);
+    }
+
+    private static double round(LongSupplier operation) {
+        var operations = 0L;
+        var startTime = System.nanoTime();
+        long elapsed;
+        do {
+            operations += operation.getAsLong();
+            elapsed = System.nanoTime() - startTime;
+        } while (elapsed < ROUND_NANOS);
+        return (double) elapsed / operations;
+    }
+
+    private static long genAllMoves(List<Board> positions) {
+        var moves = new long[Board.MAX_MOVES];
+        for (var board : positions) sink += board.genAllMoves(true, moves);
+        return positions.size();
+    }
+
+    // every piece of a position the way the GUI asks, on a copy: the legal move cache is not copied,
+    // so the first call generates and the others use the cache, the copy is in the time (see copyBoard)
+    private static long genAllPossibleMoves(List<Board> positions) {
+        var operations = 0L;
+        for (var position : positions) {
+            var board = new Board(position);
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    if (!board.fieldHasPlayersPiece(x, y)) continue;
+                    sink += board.genAllPossibleMoves(x, y).size();
+                    operations++;
+                }
+            }
+        }
+        return operations;
+    }
+
+    private static long makeUnmakeMove(List<Board> positions) {
+        var moves = new long[Board.MAX_MOVES];
+        var undo = new MoveUndo();
+        var operations = 0L;
+
+        for (var board : positions) {
+            var count = board.genAllMoves(true, moves);
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i], undo);
+                sink += board.hash;
+                board.unmakeMove(undo);
+            }
+            operations += count;
+        }
+        return operations;
+    }
+
+    private static long copyBoard(List<Board> positions) {
+        for (var board : positions) sink += new Board(board).hash;
+        return positions.size();
+    }
+
+    // one operation is a complete search of one position, the table is cleared in between
+    private static long search(List<Board> positions) {
+        var transpositionTable = new TranspositionTable(16);
+        for (var board : positions) {
+            transpositionTable.clear();
+            var result = new Search(new Board(board), transpositionTable, null, SearchOptions.all(), null, TimeManager.fixedDepth(SEARCH_DEPTH))
+                    .iterativeDeepening(SEARCH_DEPTH, true, null);
+            sink += result.stats.nodes;
+        }
+        return positions.size();
+    }
+}
@@ -1,349 +1,474 @@
-import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 class Board {
-    Piece[][] board;
-    List<Piece> playerPieces;
-    List<Piece> aiPieces;
-
-    Board(Board board) {
-        this.board = new Piece[8][8];
-        this.playerPieces = new ArrayList<>();
-        this.aiPieces = new ArrayList<>();
-
-        for (var p : board.playerPieces) {
-            var pieceCopy = new Piece(p);
-            this.board[p.boardX][p.boardY] = pieceCopy;
-            this.playerPieces.add(pieceCopy);
-        }
-        for (var p : board.aiPieces) {
-            var pieceCopy = new Piece(p);
-            this.board[p.boardX][p.boardY] = pieceCopy;
-            this.aiPieces.add(pieceCopy);
+    // 32 playable (dark) squares, one bit each: square = y * 4 + x / 2
+    // even rows hold x = 0, 2, 4, 6 - odd rows hold x = 1, 3, 5, 7
+    private static final int EVEN_ROWS = 0x0F0F0F0F;
+    private static final int ODD_ROWS = 0xF0F0F0F0;
+    private static final int LEFT_COLUMN = 0x11111111;  // x == 0 on even rows
+    private static final int RIGHT_COLUMN = 0x88888888; // x == 7 on odd rows
+
+    // upper bound for the moves of one position, size for move buffers
+    static final int MAX_MOVES = 128;
+
+    // Zobrist keys, indexed by [AI_MEN, AI_KINGS, PLAYER_MEN, PLAYER_KINGS][square]
+    static final int AI_MEN = 0, AI_KINGS = 1, PLAYER_MEN = 2, PLAYER_KINGS = 3;
+    private static final long[][] ZOBRIST = new long[4][32];
+    private static final long AI_TO_MOVE;
+
+    static {
+        // fixed seed, hashes stay the same between runs
+        var random = new Random(0x5EEDC0DEL);
+        for (var keys : ZOBRIST) {
+            for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
         }
+        AI_TO_MOVE = random.nextLong();
     }
 
-    Board() {
-        board = new Piece[8][8];
-
-        playerPieces = new ArrayList<>();
-        aiPieces = new ArrayList<>();
+    int aiMen;
+    int aiKings;
+    int playerMen;
+    int playerKings;
+    // maintained incrementally by makeMove / unmakeMove
+    long hash;
+    // sum of Evaluation.VALUES of all pieces
+    int score;
+    // learned evaluation and its first layer along the moves, maintained by makeMove / unmakeMove
+    // both null => Evaluation uses score
+    Network network;
+    Accumulator accumulator;
+
+    // generateLegalMoves of the position and side with this hash, not copied with the board
+    private long[] legalMoves;
+    private long legalMovesKey;
 
-        for (int i = 0; i < 12; i++) {
-            var playerPiece = new Piece(i, false);
-            var aiPiece = new Piece(i+12,true);
+    Board(Board board) {
+        this.aiMen = board.aiMen;
+        this.aiKings = board.aiKings;
+        this.playerMen = board.playerMen;
+        this.playerKings = board.playerKings;
+        this.hash = board.hash;
+        this.score = board.score;
+        this.network = board.network;
+        this.accumulator = board.network == null ? null : new Accumulator(board.network);
+    }
 
-            playerPieces.add(playerPiece);
-            aiPieces.add(aiPiece);
+    // a copy evaluated by network, null => by the piece-square sum
+    Board withNetwork(Network network) {
+        var board = new Board(this);
+        board.network = network;
+        board.accumulator = network == null ? null : new Accumulator(network);
+        return board;
+    }
 
-            playerPiece.boardY = i / 4;
-            aiPiece.boardY = 7 - i / 4;
+    // replaces all pieces, everything kept incrementally is recomputed
+    void setPieces(int aiMen, int aiKings, int playerMen, int playerKings) {
+        this.aiMen = aiMen;
+        this.aiKings = aiKings;
+        this.playerMen = playerMen;
+        this.playerKings = playerKings;
+        hash = computeHash();
+        score = computeScore();
+        if (accumulator != null) accumulator.reset();
+    }
 
-            playerPiece.boardX = (i/4==1) ? 1 + (i - 4*(i/4))*2 : (i - 4*(i/4))*2;
-            aiPiece.boardX = (i/4==1) ? (i - 4*(i/4))*2 : 1 + (i - 4*(i/4))*2;
+    // the same position seen from the other side: turned by 180 degrees with AI and player swapped,
+    // so square becomes 31 - square
+    Board flipped() {
+        var flipped = new Board(this);
+        flipped.setPieces(Integer.reverse(playerMen), Integer.reverse(playerKings), Integer.reverse(aiMen), Integer.reverse(aiKings));
+        return flipped;
+    }
 
-            board[playerPiece.boardX][playerPiece.boardY] = playerPiece;
-            board[aiPiece.boardX][aiPiece.boardY] = aiPiece;
-        }
+    Board() {
+        playerMen = 0x00000FFF; // rows 0 - 2
+        aiMen = 0xFFF00000;     // rows 5 - 7
+        hash = computeHash();
+        score = computeScore();
     }
 
-    private void removePieces(List<PossibleCapture> possibleCaptures, int[] toXY) {
-        for (var capture : possibleCaptures) {
-            if (Arrays.equals(capture.endPosition, toXY)) {
+    private long computeHash() {
+        return hashSquares(AI_MEN, aiMen) ^ hashSquares(AI_KINGS, aiKings)
+                ^ hashSquares(PLAYER_MEN, playerMen) ^ hashSquares(PLAYER_KINGS, playerKings);
+    }
 
-                for (var remPiece : capture.toRemovePieces) {
-                    if (remPiece.isAI) {
-                        aiPieces.removeIf(p -> p.ID == remPiece.ID);
-                    } else {
-                        playerPieces.removeIf(p -> p.ID == remPiece.ID);
-                    }
-                    board[remPiece.boardX][remPiece.boardY] = null;
-                }
+    private int computeScore() {
+        return Evaluation.sum(AI_MEN, aiMen) + Evaluation.sum(AI_KINGS, aiKings)
+                + Evaluation.sum(PLAYER_MEN, playerMen) + Evaluation.sum(PLAYER_KINGS, playerKings);
+    }
 
-                return;
-            }
+    private static long hashSquares(int kind, int squares) {
+        long h = 0;
+        for (; squares != 0; squares &= squares - 1) {
+            h ^= ZOBRIST[kind][Integer.numberOfTrailingZeros(squares)];
         }
+        return h;
     }
 
-    private void removePossibleCapturesFromBoard(int[] fromXY, int[] toXY) {
-        var piece = board[fromXY[0]][fromXY[1]];
-        List<PossibleCapture> possibleCaptures;
-
-        if (piece.isKing) {
-            if (!kingCapturePossible(fromXY[0], fromXY[1], piece.isAI)) return;
-            possibleCaptures = getResultsAfterKingCapture(fromXY[0], fromXY[1], piece.isAI, new ArrayList<>(), new ArrayList<>());
-        } else {
-            if (piece.isAI) {
-                if (!bottomCapturePossible(fromXY[0], fromXY[1], true)) return;
-                possibleCaptures = getResultsAfterBottomCapture(fromXY[0], fromXY[1], true, new ArrayList<>());
-            } else {
-                if (!topCapturePossible(fromXY[0], fromXY[1], false)) return;
-                possibleCaptures = getResultsAfterTopCapture(fromXY[0], fromXY[1], false, new ArrayList<>());
-            }
-        }
-        removePieces(possibleCaptures, toXY);
+    // the board itself does not know whose turn it is, the search passes it in
+    long getHash(boolean isAIsTurn) {
+        return isAIsTurn ? hash ^ AI_TO_MOVE : hash;
     }
 
-    void makeMove(int[] fromXY, int[] toXY) {
-        removePossibleCapturesFromBoard(fromXY, toXY);
+    static int square(int x, int y) {
+        return y * 4 + x / 2;
+    }
+    static int squareX(int square) {
+        return 2 * (square & 3) + ((square >> 2) & 1);
+    }
+    static int squareY(int square) {
+        return square >> 2;
+    }
 
-        var piece = board[fromXY[0]][fromXY[1]];
+    // shift every square of the set one step in the given direction, squares leaving the board are dropped
+    private static int topLeft(int squares) {
+        return ((squares & EVEN_ROWS & ~LEFT_COLUMN) << 3) | ((squares & ODD_ROWS) << 4);
+    }
+    private static int topRight(int squares) {
+        return ((squares & EVEN_ROWS) << 4) | ((squares & ODD_ROWS & ~RIGHT_COLUMN) << 5);
+    }
+    private static int bottomLeft(int squares) {
+        return ((squares & EVEN_ROWS & ~LEFT_COLUMN) >>> 5) | ((squares & ODD_ROWS) >>> 4);
+    }
+    private static int bottomRight(int squares) {
+        return ((squares & EVEN_ROWS) >>> 4) | ((squares & ODD_ROWS & ~RIGHT_COLUMN) >>> 3);
+    }
 
-        board[toXY[0]][toXY[1]] = piece;
-        board[fromXY[0]][fromXY[1]] = null;
+    int pieces(boolean isAI) {
+        return isAI ? aiMen | aiKings : playerMen | playerKings;
+    }
+    int kings(boolean isAI) {
+        return isAI ? aiKings : playerKings;
+    }
+    private int occupied() {
+        return aiMen | aiKings | playerMen | playerKings;
+    }
 
-        piece.boardX = toXY[0];
-        piece.boardY = toXY[1];
+    // player men move to the top, AI men to the bottom, kings both ways
+    private int topMovers(boolean isAI) {
+        return isAI ? aiKings : playerMen | playerKings;
+    }
+    private int bottomMovers(boolean isAI) {
+        return isAI ? aiMen | aiKings : playerKings;
+    }
 
-        if (piece.isAI && piece.boardY == 0) piece.isKing = true;
-        if (!piece.isAI && piece.boardY == 7) piece.isKing = true;
+    // all pieces of a side which can start a capture, computed for the whole side at once
+    int getCaptureSources(boolean isAI) {
+        var empty = ~occupied();
+        var opponent = pieces(!isAI);
+        var top = topMovers(isAI);
+        var bottom = bottomMovers(isAI);
+
+        return (top & bottomRight(bottomRight(empty) & opponent))
+                | (top & bottomLeft(bottomLeft(empty) & opponent))
+                | (bottom & topRight(topRight(empty) & opponent))
+                | (bottom & topLeft(topLeft(empty) & opponent));
     }
 
-    private boolean kingCapturePossible(int x, int y, boolean isAI) {
-        return topCapturePossible(x, y, isAI) || bottomCapturePossible(x, y, isAI);
+    // all pieces of a side which have a non capturing move
+    private int getQuietMoveSources(boolean isAI) {
+        var empty = ~occupied();
+        return (topMovers(isAI) & (bottomRight(empty) | bottomLeft(empty)))
+                | (bottomMovers(isAI) & (topRight(empty) | topLeft(empty)));
     }
-    private boolean topCapturePossible(int x, int y, boolean isAI) {
-        return topLeftCapturePossible(x, y, isAI) || topRightCapturePossible(x, y, isAI);
+
+    MoveUndo makeMove(int[] fromXY, int[] toXY) {
+        return makeMove(square(fromXY[0], fromXY[1]), square(toXY[0], toXY[1]));
     }
-    private boolean bottomCapturePossible(int x, int y, boolean isAI) {
-        return bottomLeftCapturePossible(x, y, isAI) || bottomRightCapturePossible(x, y, isAI);
+
+    // of several capture paths ending on the same square the one findMove picks
+    MoveUndo makeMove(int from, int to) {
+        var isAI = (pieces(true) & (1 << from)) != 0;
+        var move = findMove(isAI, new int[]{from, to});
+        return makeMove(move != Search.NO_MOVE ? move : Move.pack(from, to, 0));
     }
-    private boolean topLeftCapturePossible(int x, int y, boolean isAI) {
-        return (x > 1 && y < 6) && (board[x-1][y+1] != null && board[x-2][y+2] == null) && board[x-1][y+1].isAI != isAI;
+
+    // the legal move along path, the squares it lands on starting with its own, Search.NO_MOVE if there is none
+    // a path of only two squares may be any capture path between them: of several, the one which captures
+    // the lowest squares (GameRecord.pathRank 0), so every reader of moves picks the same one
+    long findMove(boolean isAI, int[] path) {
+        var from = path[0];
+        var to = path[path.length - 1];
+        var jumped = Move.jumpedSquares(path);
+
+        var found = Search.NO_MOVE;
+        for (var move : generateLegalMoves(isAI)) {
+            if (Move.from(move) != from || Move.to(move) != to) continue;
+            if (path.length > 2 && Move.capturedSquares(move) != jumped) continue;
+            if (found == Search.NO_MOVE || Integer.compareUnsigned(Move.capturedSquares(move), Move.capturedSquares(found)) < 0) found = move;
+        }
+        return found;
     }
-    private boolean topRightCapturePossible(int x, int y, boolean isAI) {
-        return (x < 6 && y < 6) && (board[x+1][y+1] != null && board[x+2][y+2] == null) && board[x+1][y+1].isAI != isAI;
+
+    MoveUndo makeMove(long move) {
+        var undo = new MoveUndo();
+        makeMove(move, undo);
+        return undo;
     }
-    private boolean bottomLeftCapturePossible(int x, int y, boolean isAI) {
-        return (x > 1 && y > 1) && (board[x-1][y-1] != null && board[x-2][y-2] == null) && board[x-1][y-1].isAI != isAI;
+
+    // fills the given undo record, so the search can reuse one record per ply
+    void makeMove(long move, MoveUndo undo) {
+        var from = Move.from(move);
+        var to = Move.to(move);
+        var captured = Move.capturedSquares(move);
+        var fromBit = 1 << from;
+        var toBit = 1 << to;
+        var isAI = (pieces(true) & fromBit) != 0;
+
+        undo.from = from;
+        undo.to = to;
+        undo.isAI = isAI;
+        undo.promoted = false;
+        undo.hash = hash;
+        undo.score = score;
+        if (isAI) {
+            undo.capturedMen = playerMen & captured;
+            undo.capturedKings = playerKings & captured;
+            playerMen &= ~captured;
+            playerKings &= ~captured;
+            hash ^= hashSquares(PLAYER_MEN, undo.capturedMen) ^ hashSquares(PLAYER_KINGS, undo.capturedKings);
+            score -= Evaluation.sum(PLAYER_MEN, undo.capturedMen) + Evaluation.sum(PLAYER_KINGS, undo.capturedKings);
+            if ((aiKings & fromBit) != 0) {
+                undo.reversible = captured == 0;
+                aiKings = (aiKings & ~fromBit) | toBit;
+                hash ^= ZOBRIST[AI_KINGS][from] ^ ZOBRIST[AI_KINGS][to];
+                score += Evaluation.VALUES[AI_KINGS][to] - Evaluation.VALUES[AI_KINGS][from];
+            } else {
+                undo.reversible = false;
+                aiMen ^= fromBit;
+                undo.promoted = squareY(to) == 0;
+                if (undo.promoted) aiKings |= toBit;
+                else aiMen |= toBit;
+                hash ^= ZOBRIST[AI_MEN][from] ^ ZOBRIST[undo.promoted ? AI_KINGS : AI_MEN][to];
+                score += Evaluation.VALUES[undo.promoted ? AI_KINGS : AI_MEN][to] - Evaluation.VALUES[AI_MEN][from];
+            }
+        } else {
+            undo.capturedMen = aiMen & captured;
+            undo.capturedKings = aiKings & captured;
+            aiMen &= ~captured;
+            aiKings &= ~captured;
+            hash ^= hashSquares(AI_MEN, undo.capturedMen) ^ hashSquares(AI_KINGS, undo.capturedKings);
+            score -= Evaluation.sum(AI_MEN, undo.capturedMen) + Evaluation.sum(AI_KINGS, undo.capturedKings);
+            if ((playerKings & fromBit) != 0) {
+                undo.reversible = captured == 0;
+                playerKings = (playerKings & ~fromBit) | toBit;
+                hash ^= ZOBRIST[PLAYER_KINGS][from] ^ ZOBRIST[PLAYER_KINGS][to];
+                score += Evaluation.VALUES[PLAYER_KINGS][to] - Evaluation.VALUES[PLAYER_KINGS][from];
+            } else {
+                undo.reversible = false;
+                playerMen ^= fromBit;
+                undo.promoted = squareY(to) == 7;
+                if (undo.promoted) playerKings |= toBit;
+                else playerMen |= toBit;
+                hash ^= ZOBRIST[PLAYER_MEN][from] ^ ZOBRIST[undo.promoted ? PLAYER_KINGS : PLAYER_MEN][to];
+                score += Evaluation.VALUES[undo.promoted ? PLAYER_KINGS : PLAYER_MEN][to] - Evaluation.VALUES[PLAYER_MEN][from];
+            }
+        }
+        if (accumulator != null) accumulator.push(this, undo);
     }
-    private boolean bottomRightCapturePossible(int x, int y, boolean isAI) {
-        return (x < 6 && y > 1) && (board[x+1][y-1] != null && board[x+2][y-2] == null) && board[x+1][y-1].isAI != isAI;
+
+    // restores the position exactly as it was before the move which returned this undo record
+    void unmakeMove(MoveUndo undo) {
+        if (accumulator != null) accumulator.pop();
+        var fromBit = 1 << undo.from;
+        var toBit = 1 << undo.to;
+
+        if (undo.isAI) {
+            if (undo.promoted) {
+                aiKings &= ~toBit;
+                aiMen |= fromBit;
+            } else if ((aiKings & toBit) != 0) {
+                // a king can end its capture on the square it started from
+                aiKings = (aiKings & ~toBit) | fromBit;
+            } else {
+                aiMen ^= fromBit | toBit;
+            }
+            playerMen |= undo.capturedMen;
+            playerKings |= undo.capturedKings;
+        } else {
+            if (undo.promoted) {
+                playerKings &= ~toBit;
+                playerMen |= fromBit;
+            } else if ((playerKings & toBit) != 0) {
+                // a king can end its capture on the square it started from
+                playerKings = (playerKings & ~toBit) | fromBit;
+            } else {
+                playerMen ^= fromBit | toBit;
+            }
+            aiMen |= undo.capturedMen;
+            aiKings |= undo.capturedKings;
+        }
+        hash = undo.hash;
+        score = undo.score;
     }
 
-    // FIRST CAPTURE MUST BE POSSIBLE IN ORDER FOR THIS METHOD TO FUNCTION CORRECTLY
-    private List<PossibleCapture> getResultsAfterKingCapture(int x, int y, boolean isAI, List<int[]> noJumpList, List<Piece> capturedPieces) {
-        var topRightOK = topRightCapturePossible(x, y, isAI) && !multArrContainsArray(noJumpList, new int[]{x+2, y+2});
-        var topLeftOK = topLeftCapturePossible(x, y, isAI) && !multArrContainsArray(noJumpList, new int[]{x-2, y+2});
-        var bottomRightOK = bottomRightCapturePossible(x, y, isAI) && !multArrContainsArray(noJumpList, new int[]{x+2, y-2});
-        var bottomLeftOK = bottomLeftCapturePossible(x, y, isAI) && !multArrContainsArray(noJumpList, new int[]{x-2, y-2});
+    // all legal moves of a side, generated once per position: the GUI asks for them piece by piece
+    // the array is shared by later calls, callers must not change it
+    long[] generateLegalMoves(boolean isAI) {
+        var key = getHash(isAI);
+        if (legalMoves == null || legalMovesKey != key) {
+            var moves = new long[MAX_MOVES];
+            legalMoves = Arrays.copyOf(moves, genAllMoves(isAI, moves));
+            legalMovesKey = key;
+        }
+        return legalMoves;
+    }
 
-        // Kings must not jump back and forth between two fields (stack overflow error)
-        // {x, y} is current field. Next field must not jump on this one.
-        noJumpList.add(new int[]{x, y});
+    // writes all legal moves of a side into moves, returns how many there are
+    int genAllMoves(boolean isAI, long[] moves) {
+        // capturing is mandatory, quiet moves only exist without captures
+        var count = genCaptures(isAI, moves);
+        if (count > 0) return count;
 
-        var possibleCaptures = new ArrayList<PossibleCapture>();
+        // non capturing moves, one direction at a time for all pieces of the side
+        var empty = ~occupied();
+        var top = topMovers(isAI);
+        var bottom = bottomMovers(isAI);
 
-        if (topRightOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x+1][y+1]);
-            possibleCaptures.addAll(getResultsAfterKingCapture(x+2, y+2, isAI, noJumpList, capturedPiecesCopy));
-        }
-        if (topLeftOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x-1][y+1]);
-            possibleCaptures.addAll(getResultsAfterKingCapture(x-2, y+2, isAI, noJumpList, capturedPiecesCopy));
+        for (var targets = topLeft(top) & empty; targets != 0; targets &= targets - 1) {
+            var to = Integer.numberOfTrailingZeros(targets);
+            moves[count++] = Move.pack(Integer.numberOfTrailingZeros(bottomRight(1 << to)), to, 0);
         }
-        if (bottomRightOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x+1][y-1]);
-            possibleCaptures.addAll(getResultsAfterKingCapture(x+2, y-2, isAI, noJumpList, capturedPiecesCopy));
+        for (var targets = topRight(top) & empty; targets != 0; targets &= targets - 1) {
+            var to = Integer.numberOfTrailingZeros(targets);
+            moves[count++] = Move.pack(Integer.numberOfTrailingZeros(bottomLeft(1 << to)), to, 0);
         }
-        if (bottomLeftOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x-1][y-1]);
-            possibleCaptures.addAll(getResultsAfterKingCapture(x-2, y-2, isAI, noJumpList, capturedPiecesCopy));
+        for (var targets = bottomLeft(bottom) & empty; targets != 0; targets &= targets - 1) {
+            var to = Integer.numberOfTrailingZeros(targets);
+            moves[count++] = Move.pack(Integer.numberOfTrailingZeros(topRight(1 << to)), to, 0);
         }
-
-        if (!(topRightOK || topLeftOK || bottomRightOK || bottomLeftOK)) {
-            possibleCaptures.add(new PossibleCapture(new int[]{x, y}, capturedPieces));
+        for (var targets = bottomRight(bottom) & empty; targets != 0; targets &= targets - 1) {
+            var to = Integer.numberOfTrailingZeros(targets);
+            moves[count++] = Move.pack(Integer.numberOfTrailingZeros(topLeft(1 << to)), to, 0);
         }
-
-        return possibleCaptures;
+        return count;
     }
-    // FIRST CAPTURE MUST BE POSSIBLE IN ORDER FOR THIS METHOD TO FUNCTION CORRECTLY
-    private List<PossibleCapture> getResultsAfterTopCapture(int x, int y, boolean isAI, List<Piece> capturedPieces) {
-        var topRightOK = topRightCapturePossible(x, y, isAI);
-        var topLeftOK = topLeftCapturePossible(x, y, isAI);
 
-        var possibleCaptures = new ArrayList<PossibleCapture>();
+    // writes only the captures of a side into moves, used by the quiescence search
+    int genCaptures(boolean isAI, long[] moves) {
+        var count = 0;
+        var captureSources = getCaptureSources(isAI);
+        if (captureSources == 0) return 0;
 
-        if (topRightOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x+1][y+1]);
-            possibleCaptures.addAll(getResultsAfterTopCapture(x+2, y+2, isAI, capturedPiecesCopy));
-        }
-        if (topLeftOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x-1][y+1]);
-            possibleCaptures.addAll(getResultsAfterTopCapture(x-2, y+2, isAI, capturedPiecesCopy));
-        }
+        var opponent = pieces(!isAI);
+        var kings = kings(isAI);
 
-        if (!(topRightOK || topLeftOK)) {
-            possibleCaptures.add(new PossibleCapture(new int[]{x, y}, capturedPieces));
-        }
+        for (; captureSources != 0; captureSources &= captureSources - 1) {
+            var from = Integer.numberOfTrailingZeros(captureSources);
+            var fromBit = 1 << from;
+            var isKing = (kings & fromBit) != 0;
+            // the moving piece leaves its square, so a king may pass over it again
+            var empty = ~occupied() | fromBit;
 
-        return possibleCaptures;
+            count = addCaptures(from, fromBit, isKing || !isAI, isKing || isAI, opponent, empty, 0, moves, count);
+        }
+        return count;
     }
-    // FIRST CAPTURE MUST BE POSSIBLE IN ORDER FOR THIS METHOD TO FUNCTION CORRECTLY
-    private List<PossibleCapture> getResultsAfterBottomCapture(int x, int y, boolean isAI, List<Piece> capturedPieces) {
-        var bottomRightOK = bottomRightCapturePossible(x, y, isAI);
-        var bottomLeftOK = bottomLeftCapturePossible(x, y, isAI);
 
-        var possibleCaptures = new ArrayList<PossibleCapture>();
+    // captured pieces stay on the board until the move is done, but can not be jumped twice
+    private static int addCaptures(int from, int bit, boolean top, boolean bottom, int opponent, int empty, int captured, long[] moves, int count) {
+        var jumpable = opponent & ~captured;
+        var startCount = count;
+
+        if (top) {
+            var over = topLeft(bit) & jumpable;
+            var land = topLeft(over) & empty;
+            if (land != 0) count = addCaptures(from, land, top, bottom, opponent, empty, captured | over, moves, count);
 
-        if (bottomRightOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x+1][y-1]);
-            possibleCaptures.addAll(getResultsAfterBottomCapture(x+2, y-2, isAI, capturedPiecesCopy));
+            over = topRight(bit) & jumpable;
+            land = topRight(over) & empty;
+            if (land != 0) count = addCaptures(from, land, top, bottom, opponent, empty, captured | over, moves, count);
         }
-        if (bottomLeftOK) {
-            var capturedPiecesCopy = new ArrayList<>(capturedPieces);
-            capturedPiecesCopy.add(board[x-1][y-1]);
-            possibleCaptures.addAll(getResultsAfterBottomCapture(x-2, y-2, isAI, capturedPiecesCopy));
+        if (bottom) {
+            var over = bottomLeft(bit) & jumpable;
+            var land = bottomLeft(over) & empty;
+            if (land != 0) count = addCaptures(from, land, top, bottom, opponent, empty, captured | over, moves, count);
+
+            over = bottomRight(bit) & jumpable;
+            land = bottomRight(over) & empty;
+            if (land != 0) count = addCaptures(from, land, top, bottom, opponent, empty, captured | over, moves, count);
         }
 
-        if (!(bottomRightOK || bottomLeftOK)) {
-            possibleCaptures.add(new PossibleCapture(new int[]{x, y}, capturedPieces));
+        // no further jump => the capture ends here
+        if (count == startCount) {
+            moves[count++] = Move.pack(from, Integer.numberOfTrailingZeros(bit), captured);
         }
-
-        return possibleCaptures;
-    }
-
-    private boolean canMoveBottomLeft(int x, int y) {
-        return x > 0 && y > 0 && board[x-1][y-1] == null;
-    }
-    private boolean canMoveBottomRight(int x, int y) {
-        return x < 7 && y > 0 && board[x+1][y-1] == null;
-    }
-    private boolean canMoveTopLeft(int x, int y) {
-        return x > 0 && y < 7 && board[x-1][y+1] == null;
-    }
-    private boolean canMoveTopRight(int x, int y) {
-        return x < 7 && y < 7 && board[x+1][y+1] == null;
-    }
-
-    private List<int[]> getTopMovesBesidesCapture(int x, int y) {
-        var moves = new ArrayList<int[]>();
-        if (canMoveTopLeft(x, y)) moves.add(new int[]{x-1, y+1});
-        if (canMoveTopRight(x, y)) moves.add(new int[]{x+1, y+1});
-        return moves;
-    }
-    private List<int[]> getBottomMovesBesidesCapture(int x, int y) {
-        var moves = new ArrayList<int[]>();
-        if (canMoveBottomLeft(x, y)) moves.add(new int[]{x-1, y-1});
-        if (canMoveBottomRight(x, y)) moves.add(new int[]{x+1, y-1});
-        return moves;
-    }
-    private List<int[]> getKingMovesBesidesCapture(int x, int y) {
-        var moves = new ArrayList<int[]>();
-        moves.addAll(getTopMovesBesidesCapture(x, y));
-        moves.addAll(getBottomMovesBesidesCapture(x, y));
-        return moves;
+        return count;
     }
 
     List<Piece> getPiecesWhichMustCapture(boolean isAIsTurn) {
         var mustCapturePieces = new ArrayList<Piece>();
-        var allPieces = isAIsTurn ? aiPieces : playerPieces;
-
-        for (var p : allPieces) {
-            if (p.isKing && kingCapturePossible(p.boardX, p.boardY, isAIsTurn)) {
-                mustCapturePieces.add(p);
-            } else if (!p.isKing) {
-                if (isAIsTurn && bottomCapturePossible(p.boardX, p.boardY, true)) {
-                    mustCapturePieces.add(p);
-                } else if (!isAIsTurn && topCapturePossible(p.boardX, p.boardY, false)) {
-                    mustCapturePieces.add(p);
-                }
-            }
-        }
-        return mustCapturePieces;
-    }
+        var kings = kings(isAIsTurn);
 
-    private boolean pieceNotMoveableBecauseOtherCanCapture(Piece piece) {
-        var piecesWhichMustCapture = getPiecesWhichMustCapture(piece.isAI);
-        if (piecesWhichMustCapture.size() > 0) {
-            // if pieces can capture, but current piece is none of them, return empty possible moves for that piece.
-            piecesWhichMustCapture.removeIf(p -> !(p.boardX == piece.boardX && p.boardY == piece.boardY));
-            return piecesWhichMustCapture.size() == 0;
+        for (var sources = getCaptureSources(isAIsTurn); sources != 0; sources &= sources - 1) {
+            var square = Integer.numberOfTrailingZeros(sources);
+            mustCapturePieces.add(new Piece(squareX(square), squareY(square), isAIsTurn, (kings & (1 << square)) != 0));
         }
-        return false;
+        return mustCapturePieces;
     }
 
     // -1 => game not over, 0 => player won, 1 => AI won
     int gameIsOver(boolean isAIsTurn) {
-        var allPieces = isAIsTurn ? aiPieces : playerPieces;
-
-        for (var piece : allPieces) {
-            if (pieceNotMoveableBecauseOtherCanCapture(piece)) return -1;
-            if (genAllPossibleMoves(piece.boardX, piece.boardY).size() > 0) return -1;
-        }
+        if (generateLegalMoves(isAIsTurn).length > 0) return -1;
         return isAIsTurn ? 0 : 1;
     }
 
-    List<int[]> genAllPossibleMoves(int x, int y) {
-        var piece = board[x][y];
+    // as above, 2 => drawn by repetition or by the draw rule
+    int gameIsOver(boolean isAIsTurn, GameHistory history) {
+        var result = gameIsOver(isAIsTurn);
+        return result == -1 && history.isDraw() ? 2 : result;
+    }
 
-        if (pieceNotMoveableBecauseOtherCanCapture(piece)) return new ArrayList<>();
+    // same as generateLegalMoves(isAI).length > 0 without generating, for the search
+    boolean hasLegalMove(boolean isAI) {
+        return getCaptureSources(isAI) != 0 || getQuietMoveSources(isAI) != 0;
+    }
 
-        if (piece.isKing) {
-            if (kingCapturePossible(x, y, piece.isAI)) {
-                var captureResults = getResultsAfterKingCapture(x, y, piece.isAI, new ArrayList<>(), new ArrayList<>());
-                return extractPossibleCapturePositions(captureResults);
-            }
-            return getKingMovesBesidesCapture(x, y);
-        }
+    List<int[]> genAllPossibleMoves(int x, int y) {
+        var from = square(x, y);
+        var isAI = (pieces(true) & (1 << from)) != 0;
 
-        if (piece.isAI) {
-            if (bottomCapturePossible(x, y, true)) {
-                var captureResults = getResultsAfterBottomCapture(x, y, true, new ArrayList<>());
-                return extractPossibleCapturePositions(captureResults);
+        // if pieces can capture, but current piece is none of them, it has no moves
+        var positionsArray = new ArrayList<int[]>();
+        for (var move : generateLegalMoves(isAI)) {
+            if (Move.from(move) == from) {
+                var to = Move.to(move);
+                positionsArray.add(new int[]{squareX(to), squareY(to)});
             }
-            return getBottomMovesBesidesCapture(x, y);
         }
-
-        if (topCapturePossible(x, y, false)) {
-            var captureResults = getResultsAfterTopCapture(x, y, false, new ArrayList<>());
-            return extractPossibleCapturePositions(captureResults);
-        }
-        return getTopMovesBesidesCapture(x, y);
+        return positionsArray;
     }
 
     boolean isLegalMove(int[] fromXY, int[] toXY) {
-        if (board[toXY[0]][toXY[1]] != null) return false;
+        // square() is only defined for the dark squares
+        if ((fromXY[0] + fromXY[1]) % 2 != 0 || (toXY[0] + toXY[1]) % 2 != 0) return false;
+        // the target may be occupied: a king's capture can end on the square it started from
+        if ((occupied() & (1 << square(fromXY[0], fromXY[1]))) == 0) return false;
 
-        var possibleMoves = genAllPossibleMoves(fromXY[0], fromXY[1]);
+        var from = square(fromXY[0], fromXY[1]);
+        var to = square(toXY[0], toXY[1]);
+        var isAI = (pieces(true) & (1 << from)) != 0;
 
-        return multArrContainsArray(possibleMoves, toXY);
-    }
-
-    private static boolean multArrContainsArray(List<int[]> multArray, int[] array) {
-        for (int[] arr : multArray) {
-            if (Arrays.equals(arr, array)) return true;
+        for (var move : generateLegalMoves(isAI)) {
+            if (Move.from(move) == from && Move.to(move) == to) return true;
         }
         return false;
     }
 
     boolean fieldHasPlayersPiece(int x, int y) {
-        return board[x][y] != null && !board[x][y].isAI;
-    }
-
-    private List<int[]> extractPossibleCapturePositions(List<PossibleCapture> possibleCaptures) {
-        var positionsArray = new ArrayList<int[]>();
-        for (var capture : possibleCaptures) {
-            positionsArray.add(capture.endPosition);
-        }
-        return positionsArray;
+        return (x + y) % 2 == 0 && (pieces(false) & (1 << square(x, y))) != 0;
     }
-}
 
-class PossibleCapture {
-    int[] endPosition;
-    List<Piece> toRemovePieces;
+    // null if the field is empty
+    Piece getPiece(int x, int y) {
+        if ((x + y) % 2 != 0) return null;
+        var bit = 1 << square(x, y);
 
-    PossibleCapture(int[] endPosition, List<Piece> toRemovePieces) {
-        this.endPosition = endPosition;
-        this.toRemovePieces = toRemovePieces;
+        if ((pieces(true) & bit) != 0) return new Piece(x, y, true, (aiKings & bit) != 0);
+        if ((pieces(false) & bit) != 0) return new Piece(x, y, false, (playerKings & bit) != 0);
+        return null;
     }
-}
\ No newline at end of file
+}
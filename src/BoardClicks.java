@@ -0,0 +1,41 @@
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.swing.JLabel;
+
+// Mouse presses on the StdDraw window as board squares. StdDraw only offers isMousePressed() to poll,
+// so the presses are taken from the event dispatch thread and queued, the game thread waits on the queue.
+class BoardClicks {
+    private final BlockingQueue<int[]> clicks = new LinkedBlockingQueue<>();
+
+    // canvasSize: StdDraw's canvas in pixels, scaled to the same range in user coordinates
+    BoardClicks(int canvasSize) {
+        Toolkit.getDefaultToolkit().addAWTEventListener(event -> {
+            if (event.getID() != MouseEvent.MOUSE_PRESSED) return;
+            // StdDraw draws on a JLabel, everything else (the menu) is not the board
+            var mouse = (MouseEvent) event;
+            var component = mouse.getComponent();
+            if (!(component instanceof JLabel)) return;
+
+            // user coordinates have y going up
+            var x = mouse.getX() * canvasSize / (float) component.getWidth();
+            var y = canvasSize - mouse.getY() * canvasSize / (float) component.getHeight();
+            int squareX = Helpers.realToBlockSize(x), squareY = Helpers.realToBlockSize(y);
+            // the label's edge rows map to 8, Board.square would wrap them onto the other side
+            if (squareX < 0 || squareX > 7 || squareY < 0 || squareY > 7) return;
+            clicks.add(new int[]{squareX, squareY});
+        }, AWTEvent.MOUSE_EVENT_MASK);
+    }
+
+    // the square {x, y} of the next click, waits for it
+    int[] next() throws InterruptedException {
+        return clicks.take();
+    }
+
+    // clicks made while the AI was thinking are not meant for the player's next move
+    void clear() {
+        clicks.clear();
+    }
+}
@@ -0,0 +1,14 @@
+// What the checks run by the test phase share, see the exec executions in pom.xml.
+class Checks {
+    private Checks() {}
+
+    // ends the check with exit code 1, which fails the build
+    static void fail(String reason) {
+        System.out.println("FAILED: " + reason);
+        System.exit(1);
+    }
+
+    static boolean samePosition(Board a, Board b) {
+        return a.aiMen == b.aiMen && a.aiKings == b.aiKings && a.playerMen == b.playerMen && a.playerKings == b.playerKings;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// The engine without any GUI: give it a position, whose turn it is and the limits, it returns the move to play.
+// The search always plays the AI, moves of the player are searched on Board.flipped() and turned back.
+class Engine {
+    private final TranspositionTable transpositionTable;
+    // both may be null
+    private final Tablebase tablebase;
+    private final OpeningBook openingBook;
+    private final SearchOptions options;
+    // null => the piece-square evaluation
+    private final Network network;
+    private final int threads;
+    private final int minDepth;
+
+    // all searches of this engine, guarded by itself
+    private final SearchStats totals = new SearchStats(0);
+    private ScheduledExecutorService statsDump;
+
+    Engine(TranspositionTable transpositionTable, Tablebase tablebase, OpeningBook openingBook, SearchOptions options, Network network, int threads, int minDepth) {
+        this.transpositionTable = transpositionTable;
+        this.tablebase = tablebase;
+        this.openingBook = openingBook;
+        this.options = options;
+        this.network = network;
+        this.threads = threads;
+        this.minDepth = minDepth;
+    }
+
+    // score: good for the side to move, the board is not changed
+    // history: the game up to board, null => repetitions before the search are not known
+    // verbose: prints every completed depth to System.out
+    SearchResult search(Board board, boolean isAIsTurn, GameHistory history, TimeManager limits, boolean verbose) {
+        return analyze(board, isAIsTurn, history, limits, 1, verbose ? AnalysisListener.print(System.out) : null);
+    }
+
+    // as search, result.lines holds the best root moves with their scores and variations, as many as lines asks for (multi-PV)
+    // the opening book only answers searches for one line
+    // listener: told after every completed depth, null => nobody
+    // stopping the limits from another thread ends the search at once, the result then holds what it had found
+    SearchResult analyze(Board board, boolean isAIsTurn, GameHistory history, TimeManager limits, int lines, AnalysisListener listener) {
+        var event = new SearchEvent();
+        event.begin();
+        var searched = isAIsTurn ? board : board.flipped();
+        // evaluated the way this engine's table was filled, whatever the caller's board uses
+        if (searched.network != network) searched = searched.withNetwork(network);
+        var searchedHistory = isAIsTurn || history == null ? history : history.flipped();
+        // the listener sees the moves of the side to move, like the result
+        var searchedListener = isAIsTurn || listener == null ? listener : (AnalysisListener) progress -> listener.depthCompleted(flip(progress));
+
+        var bookMove = openingBook == null || lines > 1 ? OpeningBook.NO_MOVE : openingBook.probe(searched, true);
+        var result = bookMove != OpeningBook.NO_MOVE
+                ? bookResult(searched, bookMove)
+                : Search.parallelSearch(searched, transpositionTable, tablebase, options, searchedHistory, threads, minDepth, lines, limits, searchedListener);
+
+        if (!isAIsTurn) flip(result);
+        result.seconds = limits.elapsedSeconds();
+
+        synchronized (totals) {
+            totals.add(result.stats);
+        }
+        if (event.shouldCommit()) {
+            event.depth = result.depth;
+            event.score = result.score;
+            event.threads = threads;
+            event.nodes = result.stats.nodes;
+            event.quiescenceNodes = result.stats.quiescenceNodes;
+            event.cutoffs = result.stats.cutoffs;
+            event.firstMoveCutoffRate = (float) result.stats.firstMoveCutoffRate();
+            event.tableHitRate = (float) result.stats.tableHitRate();
+            event.branchingFactor = (float) result.stats.branchingFactor();
+            event.commit();
+        }
+        return result;
+    }
+
+    // a result of the flipped board turned back
+    private static SearchResult flip(SearchResult result) {
+        if (result.move == Search.NO_MOVE) return result;
+
+        result.move = Move.flip(result.move);
+        result.fromXY = Search.toXY(Move.from(result.move));
+        result.toXY = Search.toXY(Move.to(result.move));
+        flip(result.pv);
+        for (var line : result.lines) {
+            line.move = Move.flip(line.move);
+            // lines[0].pv is a copy of its own, not result.pv
+            flip(line.pv);
+        }
+        return result;
+    }
+
+    private static void flip(long[] moves) {
+        for (int i = 0; i < moves.length; i++) moves[i] = Move.flip(moves[i]);
+    }
+
+    private static SearchResult bookResult(Board board, int bookMove) {
+        var result = new SearchResult();
+        var moves = new long[Board.MAX_MOVES];
+        var count = board.genAllMoves(true, moves);
+
+        // the book only stores from / to, the captured pieces come from the generated move
+        for (int i = 0; i < count; i++) {
+            if (Move.from(moves[i]) == OpeningBook.from(bookMove) && Move.to(moves[i]) == OpeningBook.to(bookMove)) {
+                result.move = moves[i];
+            }
+        }
+        result.fromXY = Search.toXY(OpeningBook.from(bookMove));
+        result.toXY = Search.toXY(OpeningBook.to(bookMove));
+        result.pv = new long[]{result.move};
+        result.lines = new SearchResult.Line[]{new SearchResult.Line(result.move, 0, new long[]{result.move}, 0)};
+        result.isBookMove = true;
+        result.stats = new SearchStats(0);
+        return result;
+    }
+
+    // prints the totals of all searches so far every intervalSeconds, until stopStatsDump
+    void startStatsDump(float intervalSeconds, PrintStream out) {
+        stopStatsDump();
+        statsDump = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "stats-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        var intervalMillis = (long) (intervalSeconds * 1000);
+        statsDump.scheduleAtFixedRate(() -> out.println("Engine: " + getTotals()), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stopStatsDump() {
+        if (statsDump != null) statsDump.shutdownNow();
+        statsDump = null;
+    }
+
+    // a copy, safe to read while the engine keeps searching
+    SearchStats getTotals() {
+        var copy = new SearchStats(0);
+        synchronized (totals) {
+            copy.add(totals);
+        }
+        return copy;
+    }
+
+    void newGame() {
+        transpositionTable.clear();
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Many games in one warm JVM: clients connect over TCP on the loopback interface and speak the protocol of EngineSession.
+// usage: java EngineServer [port] [tableMB] [searchSlots] [threadsPerSearch]
+//
+// Every connection is a session with its own game, read on its own thread (a virtual thread where the JDK has them).
+// The searches of all sessions run on one bounded pool, at most searchSlots at once, the others wait for a slot.
+// All sessions share one transposition table of tableMB, so memory stays capped however many games are played,
+// positions are keyed by their hash and one game's entries are as good for any other.
+public class EngineServer {
+    static final int DEFAULT_PORT = 7654;
+    private static final int MIN_DEPTH = 5;
+    private static final String TABLEBASE_FILE = "tablebase.ckdb";
+    private static final String OPENING_BOOK_FILE = "book.ckob";
+    private static final String NETWORK_FILE = "eval.cknn";
+
+    private final TranspositionTable transpositionTable;
+    // all may be null, loaded once for all sessions
+    private final Tablebase tablebase = Tablebase.load(TABLEBASE_FILE);
+    private final OpeningBook openingBook = OpeningBook.load(OPENING_BOOK_FILE);
+    private final Network network = Network.load(NETWORK_FILE);
+    private final int threadsPerSearch;
+
+    final ExecutorService searchPool;
+    final AtomicInteger sessions = new AtomicInteger();
+
+    EngineServer(int tableMB, int searchSlots, int threadsPerSearch) {
+        this.transpositionTable = new TranspositionTable(tableMB);
+        this.threadsPerSearch = threadsPerSearch;
+
+        var slot = new AtomicInteger();
+        searchPool = Executors.newFixedThreadPool(searchSlots, runnable -> {
+            var thread = new Thread(runnable, "search-slot-" + slot.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        var port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        var tableMB = args.length > 1 ? Integer.parseInt(args[1]) : 512;
+        var searchSlots = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        var threadsPerSearch = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        var server = new EngineServer(tableMB, searchSlots, threadsPerSearch);
+        try (var socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.printf("Listening on %s:%d, %d MB table, %d search slots of %d threads%n",
+                    socket.getInetAddress().getHostAddress(), socket.getLocalPort(), tableMB, searchSlots, threadsPerSearch);
+            server.serve(socket);
+        }
+    }
+
+    // until the socket is closed
+    void serve(ServerSocket socket) throws IOException {
+        var sessionThreads = newSessionExecutor();
+        try {
+            while (true) sessionThreads.execute(new EngineSession(this, socket.accept()));
+        } finally {
+            sessionThreads.shutdownNow();
+        }
+    }
+
+    // every session gets its own engine for its statistics, the tables are the server's
+    // Engine.newGame must not be called, it would clear the table of every session
+    Engine newEngine() {
+        return new Engine(transpositionTable, tablebase, openingBook, SearchOptions.all(), network, threadsPerSearch, MIN_DEPTH);
+    }
+
+    // one virtual thread per session on JDK 21 and later, the build targets 11 so it is looked up at runtime
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            var session = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "session-" + session.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,269 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// One client of the EngineServer. One command per line, every answer is one line:
+//   newgame [ai|player]              start position, the player moves first unless "ai"       -> ok
+//   position <ai|player> <squares>   side to move and 32 characters for squares 0-31:
+//                                    a / A AI man / king, p / P player man / king, . empty      -> ok
+//   move x,y-x,y[-x,y ...]           plays a legal move of the side to move: its square and every square it lands on,
+//                                    from and to alone => the capture path Board.findMove picks  -> ok [result ai|player|draw]
+//   go [time s] [depth n] [nodes n]  searches the side to move, 10 seconds by default, commands are still read,
+//                                    time and nodes above 0, depth 1 to Search.MAX_DEPTH
+//                                    -> bestmove x,y-x,y score s depth d pv x,y-x,y ...   (bestmove none: no moves)
+//   go ... lines n                   the same, the best n moves are searched (multi-PV) and after every depth
+//                                    each of them is sent first  -> info depth d line k score s pv x,y-x,y ...
+//   stop                             the running search answers at once                      -> nothing more
+//   stats                            -> stats <totals of this session's searches>
+//   quit
+// Moves are sent the way move takes them, captures with their whole path, so they can be played back exactly.
+// Anything else, or a command which does not fit the game, is answered with "error <reason>".
+class EngineSession implements Runnable {
+    private static final float DEFAULT_SEARCH_TIME = 10;
+
+    private final EngineServer server;
+    private final Socket socket;
+    private final Engine engine;
+    private Writer out;
+
+    private Board board = new Board();
+    private boolean isAIsTurn;
+    private GameHistory history = new GameHistory(board, false, GameHistory.DEFAULT_DRAW_PLIES);
+    // cleared by the search slot before it answers, also when the search failed, so the client may send the next command at once
+    private volatile boolean searching;
+    // of the last go, stopping ends its search
+    private TimeManager searchLimits;
+
+    EngineSession(EngineServer server, Socket socket) {
+        this.server = server;
+        this.socket = socket;
+        this.engine = server.newEngine();
+    }
+
+    @Override
+    public void run() {
+        server.sessions.incrementAndGet();
+        try (socket) {
+            var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                var words = line.trim().split("\\s+");
+                if (words[0].isEmpty()) continue;
+                if (words[0].equals("quit")) break;
+
+                try {
+                    execute(words);
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    send("error " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            // client gone, nothing to answer
+        } finally {
+            stopSearch();
+            server.sessions.decrementAndGet();
+        }
+    }
+
+    private void execute(String[] words) throws IOException {
+        switch (words[0]) {
+            case "newgame":
+                requireNoSearch();
+                newGame(new Board(), words.length > 1 && words[1].equals("ai"));
+                send("ok");
+                break;
+            case "position":
+                requireNoSearch();
+                if (words.length != 3) throw new IllegalArgumentException("position <ai|player> <32 squares>");
+                newGame(parsePosition(words[2]), parseSide(words[1]));
+                send("ok");
+                break;
+            case "move":
+                requireNoSearch();
+                if (words.length != 2) throw new IllegalArgumentException("move x,y-x,y[-x,y ...]");
+                move(words[1]);
+                break;
+            case "go":
+                requireNoSearch();
+                go(words);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "stats":
+                send("stats " + engine.getTotals() + ", sessions " + server.sessions.get());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown command " + words[0]);
+        }
+    }
+
+    private void newGame(Board board, boolean isAIsTurn) {
+        this.board = board;
+        this.isAIsTurn = isAIsTurn;
+        history = new GameHistory(board, isAIsTurn, GameHistory.DEFAULT_DRAW_PLIES);
+    }
+
+    private void move(String text) throws IOException {
+        var squares = text.split("-");
+        if (squares.length < 2) throw new IllegalArgumentException("move x,y-x,y[-x,y ...]");
+        var path = new int[squares.length];
+        for (int i = 0; i < squares.length; i++) path[i] = parseSquare(squares[i]);
+
+        var move = board.findMove(isAIsTurn, path);
+        if (move == Search.NO_MOVE) throw new IllegalArgumentException("illegal move " + text);
+
+        history.add(board, board.makeMove(move));
+        isAIsTurn = !isAIsTurn;
+
+        var gameOver = board.gameIsOver(isAIsTurn, history);
+        send(gameOver == -1 ? "ok" : "ok result " + (gameOver == 0 ? "player" : gameOver == 1 ? "ai" : "draw"));
+    }
+
+    private void go(String[] words) {
+        var seconds = DEFAULT_SEARCH_TIME;
+        var depth = Search.MAX_DEPTH;
+        var nodes = Long.MAX_VALUE;
+        var lines = 0;
+        for (int i = 1; i < words.length; i += 2) {
+            if (i + 1 == words.length) throw new IllegalArgumentException("no value for " + words[i]);
+            switch (words[i]) {
+                case "time": seconds = Float.parseFloat(words[i + 1]); break;
+                case "depth": depth = Integer.parseInt(words[i + 1]); break;
+                case "nodes": nodes = Long.parseLong(words[i + 1]); break;
+                case "lines": lines = Integer.parseInt(words[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown limit " + words[i]);
+            }
+        }
+        // checked here, the search would only fail in the pool
+        if (!(seconds > 0)) throw new IllegalArgumentException("time must be above 0, not " + seconds);
+        if (depth < 1 || depth > Search.MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be 1 to " + Search.MAX_DEPTH + ", not " + depth);
+        }
+        if (nodes < 1) throw new IllegalArgumentException("nodes must be above 0, not " + nodes);
+        if (lines < 0) throw new IllegalArgumentException("lines must be 0 or more, not " + lines);
+
+        // the session may get new commands while the search runs, it searches copies
+        var searchBoard = new Board(board);
+        var searchHistory = new GameHistory(history);
+        var searchIsAIsTurn = isAIsTurn;
+        var searchLines = lines;
+        // the time counts from the go, waiting for a search slot included
+        var limits = TimeManager.forMove(seconds, depth, nodes);
+        searchLimits = limits;
+        searching = true;
+        server.searchPool.execute(() -> {
+            String answer;
+            try {
+                answer = bestMove(searchBoard, searchIsAIsTurn, searchHistory, limits, searchLines);
+            } catch (RuntimeException e) {
+                // the pool would swallow it, the client gets it and the session can search again
+                answer = "error search failed: " + e;
+            } finally {
+                searching = false;
+            }
+            try {
+                send(answer);
+            } catch (IOException e) {
+                // client gone, the session thread ends by itself
+            }
+        });
+    }
+
+    // lines: 0 => no info lines
+    private String bestMove(Board board, boolean isAIsTurn, GameHistory history, TimeManager limits, int lines) {
+        if (board.gameIsOver(isAIsTurn, history) != -1) return "bestmove none";
+
+        var result = lines > 0
+                ? engine.analyze(board, isAIsTurn, history, limits, lines, progress -> sendLines(board, progress))
+                : engine.search(board, isAIsTurn, history, limits, false);
+        return "bestmove " + formatMoves(board, new long[]{result.move}) + " score " + result.score
+                + " depth " + result.depth + " pv " + formatMoves(board, result.pv);
+    }
+
+    private void sendLines(Board board, SearchResult result) {
+        try {
+            for (int i = 0; i < result.lines.length; i++) {
+                var line = result.lines[i];
+                send("info depth " + result.depth + " line " + (i + 1) + " score " + line.score + " pv " + formatMoves(board, line.pv));
+            }
+        } catch (IOException e) {
+            // client gone, the session thread ends by itself
+        }
+    }
+
+    private void requireNoSearch() {
+        if (searching) throw new IllegalStateException("search running, stop it first");
+    }
+
+    private void stopSearch() {
+        if (searchLimits != null) searchLimits.stop();
+    }
+
+    // from the session thread and the search slot, one line at a time
+    private synchronized void send(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    private static boolean parseSide(String side) {
+        if (side.equals("ai")) return true;
+        if (side.equals("player")) return false;
+        throw new IllegalArgumentException("side is ai or player, not " + side);
+    }
+
+    private static Board parsePosition(String squares) {
+        if (squares.length() != 32) throw new IllegalArgumentException("a position has 32 squares");
+
+        int aiMen = 0, aiKings = 0, playerMen = 0, playerKings = 0;
+        for (int square = 0; square < 32; square++) {
+            var bit = 1 << square;
+            switch (squares.charAt(square)) {
+                case 'a': aiMen |= bit; break;
+                case 'A': aiKings |= bit; break;
+                case 'p': playerMen |= bit; break;
+                case 'P': playerKings |= bit; break;
+                case '.': break;
+                default: throw new IllegalArgumentException("unknown piece " + squares.charAt(square));
+            }
+        }
+        var board = new Board();
+        board.setPieces(aiMen, aiKings, playerMen, playerKings);
+        return board;
+    }
+
+    // moves played one after another from board, separated by spaces, as move takes them
+    private static String formatMoves(Board board, long[] moves) {
+        var text = new StringBuilder();
+        var played = new Board(board);
+        for (var move : moves) {
+            if (text.length() > 0) text.append(' ');
+            // a path lands on none of the other pieces
+            var squares = Move.path(move, played.pieces(true) | played.pieces(false));
+            for (int i = 0; i < squares.size(); i++) {
+                if (i > 0) text.append('-');
+                text.append(Board.squareX(squares.get(i))).append(',').append(Board.squareY(squares.get(i)));
+            }
+            played.makeMove(move);
+        }
+        return text.toString();
+    }
+
+    // "x,y"
+    private static int parseSquare(String text) {
+        var xy = text.split(",");
+        if (xy.length != 2) throw new IllegalArgumentException("a square is x,y, not " + text);
+        int squareX = Integer.parseInt(xy[0]), squareY = Integer.parseInt(xy[1]);
+        if (squareX < 0 || squareX > 7 || squareY < 0 || squareY > 7 || (squareX + squareY) % 2 != 0) {
+            throw new IllegalArgumentException("not a dark square " + text);
+        }
+        return Board.square(squareX, squareY);
+    }
+}
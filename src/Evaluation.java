@@ -0,0 +1,60 @@
+// Evaluation terms which only depend on a piece and its square, so Board can keep the sum up to date in makeMove.
+// VALUES[kind][square] uses the Zobrist order of kinds (Board.AI_MEN, ...), good for the AI => positive.
+class Evaluation {
+    // one man is worth UNIT, scores in the search are in men
+    static final int UNIT = 100;
+
+    private static final int MAN = 100;
+    private static final int KING = 200;
+    // per row a man has advanced, it is closer to promotion and the opponent runs out of waiting moves first
+    private static final int TEMPO = 2;
+    // men on their own back row keep the opponent's men from promoting
+    private static final int BACK_RANK_GUARD = 10;
+    private static final int CENTER_MAN = 4;
+    private static final int CENTER_KING = 8;
+
+    static final int[][] VALUES = new int[4][32];
+
+    static {
+        for (int square = 0; square < 32; square++) {
+            var x = Board.squareX(square);
+            var y = Board.squareY(square);
+
+            // AI men move down to row 0, player men up to row 7
+            VALUES[Board.AI_MEN][square] = manValue(x, 7 - y);
+            VALUES[Board.AI_KINGS][square] = kingValue(x, y);
+            VALUES[Board.PLAYER_MEN][square] = -manValue(x, y);
+            VALUES[Board.PLAYER_KINGS][square] = -kingValue(x, y);
+        }
+    }
+
+    private Evaluation() {}
+
+    // advanced: rows away from the own back row
+    private static int manValue(int x, int advanced) {
+        var value = MAN + TEMPO * advanced;
+        if (advanced == 0) value += BACK_RANK_GUARD;
+        if (x >= 2 && x <= 5) value += CENTER_MAN;
+        return value;
+    }
+
+    private static int kingValue(int x, int y) {
+        var value = KING;
+        if (x >= 2 && x <= 5 && y >= 2 && y <= 5) value += CENTER_KING;
+        return value;
+    }
+
+    static int sum(int kind, int squares) {
+        var sum = 0;
+        for (; squares != 0; squares &= squares - 1) {
+            sum += VALUES[kind][Integer.numberOfTrailingZeros(squares)];
+        }
+        return sum;
+    }
+
+    // good for ai => high score, the board's network when it has one (Board.withNetwork)
+    static float score(Board board) {
+        if (board.accumulator != null) return board.accumulator.evaluate(board);
+        return board.score / (float) UNIT;
+    }
+}
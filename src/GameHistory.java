@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+// The positions of the game so far, for repetitions and the draw rule.
+// Every hash is also kept as Board.flipped() sees the position, for the searches of the player's moves.
+class GameHistory {
+    // 40 moves of each side without a capture or a man moving
+    static final int DEFAULT_DRAW_PLIES = 80;
+    // the third time a position comes back with the same side to move, the game is drawn
+    private static final int REPETITIONS = 3;
+
+    // 0 => no draw rule
+    private final int drawPlies;
+    private long[] hashes;
+    private long[] flippedHashes;
+    private int count;
+    private int pliesSinceProgress;
+
+    // board: the position the game starts from
+    GameHistory(Board board, boolean isAIsTurn, int drawPlies) {
+        this.drawPlies = drawPlies;
+        hashes = new long[64];
+        flippedHashes = new long[64];
+        append(board, isAIsTurn);
+    }
+
+    GameHistory(GameHistory history) {
+        drawPlies = history.drawPlies;
+        hashes = history.hashes.clone();
+        flippedHashes = history.flippedHashes.clone();
+        count = history.count;
+        pliesSinceProgress = history.pliesSinceProgress;
+    }
+
+    // after every move of the game, undo: what makeMove returned
+    void add(Board board, MoveUndo undo) {
+        pliesSinceProgress = undo.reversible ? pliesSinceProgress + 1 : 0;
+        append(board, !undo.isAI);
+    }
+
+    private void append(Board board, boolean isAIsTurn) {
+        if (count == hashes.length) {
+            hashes = Arrays.copyOf(hashes, 2 * count);
+            flippedHashes = Arrays.copyOf(flippedHashes, 2 * count);
+        }
+        hashes[count] = board.getHash(isAIsTurn);
+        flippedHashes[count] = board.flipped().getHash(!isAIsTurn);
+        count++;
+    }
+
+    // the same game seen from the other side, for a search on Board.flipped()
+    GameHistory flipped() {
+        var flipped = new GameHistory(this);
+        flipped.hashes = flippedHashes.clone();
+        flipped.flippedHashes = hashes.clone();
+        return flipped;
+    }
+
+    // by repetition or by the draw rule
+    boolean isDraw() {
+        if (drawPlies > 0 && pliesSinceProgress >= drawPlies) return true;
+
+        // positions before the last capture or man move cannot come back
+        var repetitions = 1;
+        var current = hashes[count - 1];
+        for (int i = count - 3; i >= count - 1 - pliesSinceProgress; i -= 2) {
+            if (hashes[i] == current) repetitions++;
+        }
+        return repetitions >= REPETITIONS;
+    }
+
+    // the positions since the last capture or man move, oldest first, the current one last
+    long[] reversibleHashes() {
+        return Arrays.copyOfRange(hashes, count - 1 - pliesSinceProgress, count);
+    }
+
+    int getPliesSinceProgress() {
+        return pliesSinceProgress;
+    }
+
+    int getDrawPlies() {
+        return drawPlies;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+// One game: where it started, every move with the score its search gave, and how it ended.
+// Moves are kept as from / to squares, replaying them takes the captures from the move generator.
+class GameRecord {
+    // the move was not searched (book, human, PDN without scores)
+    static final short NO_SCORE = Short.MIN_VALUE;
+    // scores are stored in 1 / Evaluation.UNIT men, wins saturate
+    private static final int MAX_SCORE = Short.MAX_VALUE;
+
+    final Board start;
+    final boolean aiStarts;
+    // Board.gameIsOver's encoding: -1 => not finished, 0 => player won, 1 => AI won, 2 => draw
+    int result = -1;
+
+    private short[] moves = new short[64];
+    private short[] scores = new short[64];
+    private int plies;
+
+    GameRecord(Board start, boolean aiStarts) {
+        this.start = new Board(start);
+        this.aiStarts = aiStarts;
+    }
+
+    // board: the position the move is played in
+    // score: of the search which chose the move, good for the side which played it, NaN => none
+    void add(Board board, boolean isAIsTurn, long move, float score) {
+        add(packMove(board, isAIsTurn, move), Float.isNaN(score) ? NO_SCORE : toStored(score));
+    }
+
+    void add(short packedMove, short score) {
+        if (plies == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * plies);
+            scores = Arrays.copyOf(scores, 2 * plies);
+        }
+        moves[plies] = packedMove;
+        scores[plies] = score;
+        plies++;
+    }
+
+    int getPlies() {
+        return plies;
+    }
+
+    short getMove(int ply) {
+        return moves[ply];
+    }
+
+    short getScore(int ply) {
+        return scores[ply];
+    }
+
+    void setScore(int ply, short score) {
+        scores[ply] = score;
+    }
+
+    // move: from bits 0-4, to bits 5-9, path bits 10-14
+    // several capture paths can join the same squares, path is the move's rank among them by captured squares (almost always 0)
+    static short packMove(Board board, boolean isAIsTurn, long move) {
+        var legal = new long[Board.MAX_MOVES];
+        var count = board.genAllMoves(isAIsTurn, legal);
+        return (short) (Move.from(move) | Move.to(move) << 5 | pathRank(legal, count, move) << 10);
+    }
+    static int moveFrom(short move) {
+        return move & 31;
+    }
+    static int moveTo(short move) {
+        return (move >> 5) & 31;
+    }
+    private static int movePath(short move) {
+        return (move >> 10) & 31;
+    }
+
+    // of the legal moves with the same squares, how many capture squares which order before the move's
+    static int pathRank(long[] legal, int count, long move) {
+        var rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.from(legal[i]) == Move.from(move) && Move.to(legal[i]) == Move.to(move)
+                    && Integer.compareUnsigned(Move.capturedSquares(legal[i]), Move.capturedSquares(move)) < 0) rank++;
+        }
+        return rank;
+    }
+
+    static short toStored(float score) {
+        return (short) Math.max(-MAX_SCORE, Math.min(MAX_SCORE, Math.round(score * Evaluation.UNIT)));
+    }
+    static float fromStored(short score) {
+        return score / (float) Evaluation.UNIT;
+    }
+
+    interface PositionVisitor {
+        // board: the position before the move of ply, only valid during the call
+        void visit(Board board, boolean isAIsTurn, int ply, short score);
+    }
+
+    // replays the game, throws IllegalArgumentException at a move which is not legal
+    void forEachPosition(PositionVisitor visitor) {
+        var board = new Board(start);
+        var isAIsTurn = aiStarts;
+        var legal = new long[Board.MAX_MOVES];
+
+        for (int ply = 0; ply < plies; ply++) {
+            visitor.visit(board, isAIsTurn, ply, scores[ply]);
+            board.makeMove(findMove(board, isAIsTurn, moves[ply], legal));
+            isAIsTurn = !isAIsTurn;
+        }
+    }
+
+    // the legal move which was packed, legal: a buffer for the generator
+    static long findMove(Board board, boolean isAIsTurn, short move, long[] legal) {
+        var count = board.genAllMoves(isAIsTurn, legal);
+        for (int i = 0; i < count; i++) {
+            if (Move.from(legal[i]) == moveFrom(move) && Move.to(legal[i]) == moveTo(move)
+                    && pathRank(legal, count, legal[i]) == movePath(move)) return legal[i];
+        }
+        throw new IllegalArgumentException("illegal move " + moveFrom(move) + "-" + moveTo(move));
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads the games of a file written by GameRecordWriter one after the other.
+// Either streamed through a buffer, or memory-mapped when the file fits one mapping (2 GB):
+// mapped scans run at page cache speed, streamed ones need no address space.
+class GameRecordReader implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean mapped;
+
+    private GameRecordReader(FileChannel channel, boolean mapped) throws IOException {
+        this.channel = channel;
+        this.mapped = mapped;
+        if (mapped) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } else {
+            buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.flip();
+        }
+
+        if (!ensure(GameRecordWriter.HEADER_BYTES) || buffer.getInt() != GameRecordWriter.MAGIC || buffer.getInt() != GameRecordWriter.VERSION) {
+            throw new IllegalArgumentException("not a game record file");
+        }
+    }
+
+    // mapped: false or a file over 2 GB => streamed
+    static GameRecordReader open(Path file, boolean mapped) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new GameRecordReader(channel, mapped && channel.size() <= Integer.MAX_VALUE);
+        } catch (IOException | IllegalArgumentException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // null after the last game
+    GameRecord next() throws IOException {
+        if (!ensure(GameRecordWriter.GAME_BYTES)) {
+            if (buffer.hasRemaining()) throw new IOException("truncated game record file");
+            return null;
+        }
+
+        var result = buffer.get();
+        var aiStarts = buffer.get() != 0;
+        var occupied = buffer.getInt();
+        var ai = buffer.getInt();
+        var kings = buffer.getInt();
+        var plies = buffer.getShort();
+
+        var start = new Board();
+        start.setPieces(ai & ~kings, ai & kings, occupied & ~ai & ~kings, occupied & ~ai & kings);
+
+        var game = new GameRecord(start, aiStarts);
+        game.result = result;
+        for (int ply = 0; ply < plies; ply++) {
+            if (!ensure(GameRecordWriter.PLY_BYTES)) throw new IOException("truncated game record file");
+            game.add(buffer.getShort(), buffer.getShort());
+        }
+        return game;
+    }
+
+    // true once bytes can be read from the buffer, false at the end of the file
+    private boolean ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return true;
+        if (mapped) return false;
+
+        buffer.compact();
+        while (buffer.position() < bytes && channel.read(buffer) > 0) {}
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -10,7 +10,7 @@ class Helpers {
 
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
-                var piece = board.board[i][j];
+                var piece = board.getPiece(i, j);
                 if (piece != null) {
                     drawCircleXY(piece.boardX, piece.boardY, piece.isAI ? Color.LIGHT_GRAY : Color.RED, piece.isKing);
                 }
@@ -37,13 +37,8 @@ class Helpers {
     }
 
     static int numPieces(Board board, boolean isAI, boolean kingPiece) {
-        int num = 0;
-        var allPieces = isAI ? board.aiPieces : board.playerPieces;
-
-        for (var p : allPieces) {
-            if (p.isAI == isAI && p.isKing == kingPiece) num++;
-        }
-        return num;
+        var kings = board.kings(isAI);
+        return Integer.bitCount(kingPiece ? kings : board.pieces(isAI) & ~kings);
     }
 
     static int realToBlockSize(float real) {
@@ -0,0 +1,55 @@
+import java.util.Random;
+
+// Checks the values makeMove keeps up to date against computing them from the pieces: over random games,
+// every legal move of every position is made and taken back, the hash and score must match a board
+// set up from the same pieces, and unmakeMove must give back the position exactly.
+// Also checks that flipped() negates the score.
+// usage: java IncrementalCheck [games] [seed]
+public class IncrementalCheck {
+    // random games seldom end, kings walk around
+    private static final int MAX_PLIES = 200;
+
+    private static final Board fresh = new Board();
+    private static long pairs;
+
+    public static void main(String[] args) {
+        var games = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        var random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        var moves = new long[Board.MAX_MOVES];
+        var undo = new MoveUndo();
+
+        for (int game = 0; game < games; game++) {
+            var board = new Board();
+            var isAIsTurn = false;
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                var count = board.genAllMoves(isAIsTurn, moves);
+                if (count == 0) break;
+
+                var before = new Board(board);
+                for (int i = 0; i < count; i++) {
+                    board.makeMove(moves[i], undo);
+                    check(board, game, ply, moves[i]);
+                    board.unmakeMove(undo);
+                    if (!Checks.samePosition(board, before) || board.hash != before.hash || board.score != before.score) {
+                        Checks.fail("unmakeMove did not restore the position" + where(game, ply, moves[i]));
+                    }
+                    pairs++;
+                }
+                board.makeMove(moves[random.nextInt(count)]);
+                isAIsTurn = !isAIsTurn;
+            }
+        }
+        System.out.println(games + " games, " + pairs + " make / unmake pairs ok");
+    }
+
+    private static void check(Board board, int game, int ply, long move) {
+        fresh.setPieces(board.aiMen, board.aiKings, board.playerMen, board.playerKings);
+        if (board.hash != fresh.hash) Checks.fail("hash " + board.hash + " instead of " + fresh.hash + where(game, ply, move));
+        if (board.score != fresh.score) Checks.fail("score " + board.score + " instead of " + fresh.score + where(game, ply, move));
+        if (board.flipped().score != -board.score) Checks.fail("flipped score " + board.flipped().score + " for " + board.score + where(game, ply, move));
+    }
+
+    private static String where(int game, int ply, long move) {
+        return " after " + Move.format(new long[]{move}, 1) + ", game " + game + " ply " + ply;
+    }
+}
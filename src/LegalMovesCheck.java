@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+// Checks the GUI entry points which answer from Board.generateLegalMoves against the move list genAllMoves
+// generates anew, over random games: gameIsOver, hasLegalMove, genAllPossibleMoves, isLegalMove for every
+// piece and target square, and makeMove(from, to). Along the game, gameIsOver(side, history) must report a draw
+// exactly when a recount of the game finds a threefold repetition or the draw rule.
+// usage: java LegalMovesCheck [games] [seed]
+public class LegalMovesCheck {
+    // past the draw rule, so games also reach the end of the draw rule and repeat positions
+    private static final int MAX_PLIES = 300;
+    // shorter than the default, so random games reach it
+    private static final int DRAW_PLIES = 40;
+
+    private static long positions;
+    private static long draws;
+
+    public static void main(String[] args) {
+        var games = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        var random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+        var moves = new long[Board.MAX_MOVES];
+
+        for (int game = 0; game < games; game++) {
+            var board = new Board();
+            var isAIsTurn = false;
+            var history = new GameHistory(board, isAIsTurn, DRAW_PLIES);
+            // every position of the game, and where the last capture or man move left off
+            var hashes = new ArrayList<Long>();
+            hashes.add(board.getHash(isAIsTurn));
+            var progress = 0;
+
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                var count = board.genAllMoves(isAIsTurn, moves);
+                var legal = Arrays.copyOf(moves, count);
+                checkMoves(board, isAIsTurn, legal, game, ply);
+                checkDraw(board, isAIsTurn, history, legal.length, hashes, progress, game, ply);
+                positions++;
+                if (count == 0) break;
+
+                var move = legal[random.nextInt(count)];
+                var isMan = (board.kings(isAIsTurn) & 1 << Move.from(move)) == 0;
+                history.add(board, board.makeMove(move));
+                isAIsTurn = !isAIsTurn;
+                if (isMan || Move.isCapture(move)) progress = hashes.size();
+                hashes.add(board.getHash(isAIsTurn));
+            }
+        }
+        System.out.println(games + " games, " + positions + " positions ok, " + draws + " of them drawn");
+    }
+
+    private static void checkMoves(Board board, boolean isAIsTurn, long[] legal, int game, int ply) {
+        if (!Arrays.equals(board.generateLegalMoves(isAIsTurn), legal)) Checks.fail("generateLegalMoves differs" + where(game, ply));
+        if (board.hasLegalMove(isAIsTurn) != legal.length > 0) Checks.fail("hasLegalMove differs" + where(game, ply));
+        var expected = legal.length > 0 ? -1 : isAIsTurn ? 0 : 1;
+        if (board.gameIsOver(isAIsTurn) != expected) Checks.fail("gameIsOver " + board.gameIsOver(isAIsTurn) + " instead of " + expected + where(game, ply));
+
+        // either side's pieces: the GUI asks for the side of the piece
+        for (var side : new boolean[]{true, false}) {
+            var sideMoves = side == isAIsTurn ? legal : board.generateLegalMoves(side);
+            for (var pieces = board.pieces(side); pieces != 0; pieces &= pieces - 1) {
+                var from = Integer.numberOfTrailingZeros(pieces);
+                var fromXY = Search.toXY(from);
+                checkPiece(board, from, fromXY, sideMoves, game, ply);
+            }
+        }
+    }
+
+    private static void checkPiece(Board board, int from, int[] fromXY, long[] sideMoves, int game, int ply) {
+        var targets = new ArrayList<Integer>();
+        var targetSquares = 0;
+        for (var move : sideMoves) {
+            if (Move.from(move) != from) continue;
+            targets.add(Move.to(move));
+            targetSquares |= 1 << Move.to(move);
+        }
+        var possible = new ArrayList<Integer>();
+        for (var toXY : board.genAllPossibleMoves(fromXY[0], fromXY[1])) possible.add(Board.square(toXY[0], toXY[1]));
+        if (!possible.equals(targets)) Checks.fail("genAllPossibleMoves " + possible + " instead of " + targets + " from square " + from + where(game, ply));
+
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                var toXY = new int[]{x, y};
+                var isLegal = (x + y) % 2 == 0 && (targetSquares & 1 << Board.square(x, y)) != 0;
+                if (board.isLegalMove(fromXY, toXY) != isLegal) {
+                    Checks.fail("isLegalMove " + !isLegal + " for " + Arrays.toString(fromXY) + " to " + Arrays.toString(toXY) + where(game, ply));
+                }
+                if (isLegal) checkMakeMove(board, from, Board.square(x, y), sideMoves, game, ply);
+            }
+        }
+    }
+
+    // of several capture paths between the squares, makeMove(from, to) plays the one capturing the lowest squares
+    private static void checkMakeMove(Board board, int from, int to, long[] sideMoves, int game, int ply) {
+        var expected = Search.NO_MOVE;
+        for (var move : sideMoves) {
+            if (Move.from(move) != from || Move.to(move) != to) continue;
+            if (expected == Search.NO_MOVE || Integer.compareUnsigned(Move.capturedSquares(move), Move.capturedSquares(expected)) < 0) expected = move;
+        }
+        var byMove = new Board(board);
+        byMove.makeMove(expected);
+        var bySquares = new Board(board);
+        bySquares.makeMove(from, to);
+        if (!Checks.samePosition(bySquares, byMove) || bySquares.hash != byMove.hash) {
+            Checks.fail("makeMove(from, to) played another move than " + Move.format(new long[]{expected}, 1) + where(game, ply));
+        }
+    }
+
+    private static void checkDraw(Board board, boolean isAIsTurn, GameHistory history, int legalMoves,
+                                  ArrayList<Long> hashes, int progress, int game, int ply) {
+        var current = hashes.get(hashes.size() - 1);
+        var repetitions = 0;
+        for (int i = progress; i < hashes.size(); i++) {
+            if (hashes.get(i).equals(current)) repetitions++;
+        }
+        var isDraw = repetitions >= 3 || hashes.size() - 1 - progress >= DRAW_PLIES;
+        var expected = legalMoves == 0 ? (isAIsTurn ? 0 : 1) : isDraw ? 2 : -1;
+        var result = board.gameIsOver(isAIsTurn, history);
+        if (result != expected) Checks.fail("gameIsOver with history " + result + " instead of " + expected + where(game, ply));
+        if (result == 2) draws++;
+    }
+
+    private static String where(int game, int ply) {
+        return ", game " + game + " ply " + ply;
+    }
+}
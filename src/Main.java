@@ -1,23 +1,48 @@
 import java.awt.*;
-import java.util.Arrays;
 
 public class Main {
     private static int MIN_DEPTH = 5;
     private static float MAX_SEARCH_TIME = 10.3f;
     private static boolean AI_STARTS = false;
-
-    public static void main(String[] args) {
+    private static int TRANSPOSITION_TABLE_MB = 64;
+    private static int SEARCH_THREADS = Runtime.getRuntime().availableProcessors();
+    private static boolean PONDER = true;
+    // built by TablebaseGenerator, the game runs without it if the file is missing
+    private static String TABLEBASE_FILE = "tablebase.ckdb";
+    // built by OpeningBookBuilder, book moves are played without searching
+    private static String OPENING_BOOK_FILE = "book.ckob";
+    // plies without a capture or a man move until the game is drawn, 0 => only repetitions draw
+    private static int DRAW_PLIES = GameHistory.DEFAULT_DRAW_PLIES;
+    // see SearchOptions.parse
+    private static String SEARCH_OPTIONS = "all";
+    // trained by NetworkTrainer, the piece-square evaluation is used if the file is missing
+    private static String NETWORK_FILE = "eval.cknn";
+    // seconds between printing the engine's counters, 0 => never
+    private static float STATS_DUMP_INTERVAL = 0;
+
+    private static TranspositionTable transpositionTable = new TranspositionTable(TRANSPOSITION_TABLE_MB);
+    private static Tablebase tablebase = Tablebase.load(TABLEBASE_FILE);
+    private static SearchOptions searchOptions = SearchOptions.parse(SEARCH_OPTIONS);
+    private static Network network = Network.load(NETWORK_FILE);
+    private static Engine engine = new Engine(transpositionTable, tablebase, OpeningBook.load(OPENING_BOOK_FILE), searchOptions, network, SEARCH_THREADS, MIN_DEPTH);
+    private static Ponder ponder = new Ponder(transpositionTable, tablebase, searchOptions, network, MIN_DEPTH);
+
+    public static void main(String[] args) throws InterruptedException {
+        var clicks = new BoardClicks(512);
         StdDraw.setCanvasSize(512, 512);
         StdDraw.setXscale(0, 512);
         StdDraw.setYscale(0, 512);
-        startGame();
+        if (STATS_DUMP_INTERVAL > 0) engine.startStatsDump(STATS_DUMP_INTERVAL, System.out);
+        startGame(clicks);
     }
 
-    private static void startGame() {
+    // the player's turn waits for clicks, the core is free for pondering meanwhile
+    private static void startGame(BoardClicks clicks) throws InterruptedException {
         var board = new Board();
         Helpers.drawBoard(board);
 
         var isAIsTurn = AI_STARTS;
+        var history = new GameHistory(board, isAIsTurn, DRAW_PLIES);
         var gameOver = -1;
 
         var fromXY = new int[]{-1, -1};
@@ -25,163 +50,55 @@ public class Main {
 
         while (gameOver == -1) {
             if (isAIsTurn) {
-                makeBestMove(board);
+                history.add(board, makeBestMove(board, history));
                 Helpers.drawBoard(board);
 
                 isAIsTurn = false;
-                gameOver = board.gameIsOver(false);
+                gameOver = board.gameIsOver(false, history);
+                if (PONDER && gameOver == -1) ponder.start(board, history);
+                clicks.clear();
             } else {
-                if (StdDraw.isMousePressed()) {
-                    int x = Helpers.realToBlockSize((float)StdDraw.mouseX());
-                    int y = Helpers.realToBlockSize((float)StdDraw.mouseY());
-
-                    if (board.fieldHasPlayersPiece(x, y)) {
-                        fromXY[0] = x;
-                        fromXY[1] = y;
-
-                        var possibleMoves = board.genAllPossibleMoves(x, y);
-                        if (possibleMoves.size() > 0) {
-                            Helpers.drawBoard(board);
-                            Helpers.highlightLegalMoves(possibleMoves);
-                        }
-                    } else if (fromXY[0] != -1 && board.isLegalMove(fromXY, new int[]{x, y})) {
-                        toXY[0] = x;
-                        toXY[1] = y;
-
-                        board.makeMove(fromXY, toXY);
+                // a click on an own piece selects it and shows its moves, a click on one of them plays it
+                var click = clicks.next();
+                int x = click[0];
+                int y = click[1];
+
+                // a click on the selected king itself plays a capture which ends where it started
+                if (board.fieldHasPlayersPiece(x, y) && !(fromXY[0] == x && fromXY[1] == y && board.isLegalMove(fromXY, fromXY))) {
+                    fromXY[0] = x;
+                    fromXY[1] = y;
+
+                    var possibleMoves = board.genAllPossibleMoves(x, y);
+                    if (possibleMoves.size() > 0) {
                         Helpers.drawBoard(board);
-
-                        fromXY = new int[]{-1, 1};
-                        toXY = new int[]{-1, 1};
-
-                        isAIsTurn = true;
-                        gameOver = board.gameIsOver(true);
+                        Helpers.highlightLegalMoves(possibleMoves);
                     }
-                    StdDraw.pause(230);
-                }
-            }
-        }
+                } else if (fromXY[0] != -1 && board.isLegalMove(fromXY, new int[]{x, y})) {
+                    toXY[0] = x;
+                    toXY[1] = y;
 
-        StdDraw.setPenColor(StdDraw.PRINCETON_ORANGE);
-        StdDraw.setFont(new Font("Arial", Font.BOLD, 80));
-        StdDraw.text(256, 256, gameOver == 0 ? "You Won!" : "AI Won");
-    }
-
-    private static void makeBestMove(Board board) {
-        int[] bestFromXY = new int[]{-1, -1};
-        int[] bestToXY = new int[]{-1, -1};
-
-        var depth = MIN_DEPTH;
-        var bestValue = -1e9f;
-        var startTime = System.nanoTime();
-
-        while (true) {
-            // used for Alpha-Beta optimization
-            var nodePathMaxMinScores = new float[]{-1e9f, 1e9f}; // AI max-score idx: 0
-            int[] currBestFromXY = new int[]{-1, -1};
-            int[] currBestToXY = new int[]{-1, -1};
-
-            try {
-                for (var p : board.aiPieces) {
-                    var allMoves = board.genAllPossibleMoves(p.boardX, p.boardY);
-                    var fromXY = new int[]{p.boardX, p.boardY};
+                    ponder.stop();
+                    history.add(board, board.makeMove(fromXY, toXY));
+                    Helpers.drawBoard(board);
 
-                    for (var toXY : allMoves) {
-                        var boardAfterMove = new Board(board);
-                        boardAfterMove.makeMove(fromXY, toXY);
+                    fromXY = new int[]{-1, 1};
+                    toXY = new int[]{-1, 1};
 
-                        var moveValue = getMoveValue(boardAfterMove, false, nodePathMaxMinScores.clone(), depth-1, startTime);
-
-                        if (moveValue > nodePathMaxMinScores[0]) {
-                            nodePathMaxMinScores[0] = moveValue;
-
-                            currBestFromXY = fromXY;
-                            currBestToXY = toXY;
-                        }
-                        if (moveValue >= bestValue) {
-                            bestValue = moveValue;
-                            bestFromXY = fromXY;
-                            bestToXY = toXY;
-                        }
-                    }
+                    isAIsTurn = true;
+                    gameOver = board.gameIsOver(true, history);
                 }
-
-                bestFromXY = currBestFromXY;
-                bestToXY = currBestToXY;
-
-                System.out.println("At depth " + depth + ":");
-                System.out.println("Score: " + nodePathMaxMinScores[0]);
-                System.out.println("From: " + Arrays.toString(bestFromXY));
-                System.out.println("To: " + Arrays.toString(bestToXY));
-                System.out.println();
-
-                if (nodePathMaxMinScores[0] == 1e5f) break; // AI won for sure
-
-            } catch (RuntimeException e) {
-                if (e.getMessage().equals("search-timeout")) break;
-                else System.out.println(e.getMessage().toUpperCase());
             }
-            depth++;
-        }
-        board.makeMove(bestFromXY, bestToXY);
-    }
-
-    // optimization: evaluate moves which capture first => more cutoffs
-    private static float getMoveValue(Board board, boolean isAIsTurn, float[] nodePathMaxMinScores, int depth, long startTime) throws RuntimeException {
-        if (depth > MIN_DEPTH && ((System.nanoTime() - startTime) / 1e9 > MAX_SEARCH_TIME)) {
-            throw new RuntimeException("search-timeout");
         }
 
-        var allPieces = isAIsTurn ? board.aiPieces : board.playerPieces;
-        var optValue = isAIsTurn ? -1e5f : 1e5f;
-
-        // optimization possible: boolean anyPieceMustCapture()
-        // while depth is 0, but pieces can be captured: do so, stop if no pieces can be captured anymore (useful heuristic)
-        if (depth <= 0 && board.getPiecesWhichMustCapture(isAIsTurn).size() == 0) return getBoardScore(board);
-
-        for (var p : allPieces) {
-            var allMoves = board.genAllPossibleMoves(p.boardX, p.boardY);
-
-            for (var moveToXY : allMoves) {
-                var boardAfterMove = new Board(board);
-                boardAfterMove.makeMove(new int[]{p.boardX, p.boardY}, moveToXY);
-
-                var moveValue = getMoveValue(boardAfterMove, !isAIsTurn, nodePathMaxMinScores.clone(), depth-1, startTime);
-
-                if (isAIsTurn) {
-                    // Alpha-Beta tree pruning
-                    // previous Node is Player (minimizer) =>
-                    // if that previous Node or other previous connected Player Nodes have minimums,
-                    // which are smaller than the current AI move (AI chooses maximum), then all other AI moves don't matter,
-                    // since all others the current AI's maximum will be >= current_value.
-                    if (moveValue > nodePathMaxMinScores[1]) return moveValue;
-                    if (moveValue > nodePathMaxMinScores[0]) {
-                        nodePathMaxMinScores[0] = moveValue;
-                    }
-                    optValue = Math.max(optValue, moveValue);
-                } else {
-                    if (moveValue < nodePathMaxMinScores[0]) return moveValue;
-                    if (moveValue < nodePathMaxMinScores[1]) {
-                        nodePathMaxMinScores[1] = moveValue;
-                    }
-                    optValue = Math.min(optValue, moveValue);
-                }
-            }
-        }
-        return optValue;
+        StdDraw.setPenColor(StdDraw.PRINCETON_ORANGE);
+        StdDraw.setFont(new Font("Arial", Font.BOLD, 80));
+        StdDraw.text(256, 256, gameOver == 0 ? "You Won!" : gameOver == 1 ? "AI Won" : "Draw");
     }
 
-    // good for ai => high score
-    private static float getBoardScore(Board board) {
-        var numKingsAI = Helpers.numPieces(board, true, true);
-        var numKingsPlayer = Helpers.numPieces(board, false, true);
-
-        var numNormalPiecesAI = Helpers.numPieces(board, true, false);
-        var numNormalPiecesPlayer = Helpers.numPieces(board, false, false);
-
-        float kingWeight = 2;
-        float normalWeight = 1;
-
-        return normalWeight * (numNormalPiecesAI - numNormalPiecesPlayer) + kingWeight * (numKingsAI - numKingsPlayer);
+    private static MoveUndo makeBestMove(Board board, GameHistory history) {
+        var result = engine.search(board, true, history, TimeManager.forMove(MAX_SEARCH_TIME), true);
+        if (result.isBookMove) System.out.println("Book move");
+        else System.out.println("Stats: " + result.stats);
+        return board.makeMove(result.move);
     }
 }
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// A move packed into one long, so move lists are plain long arrays:
+// from square bits 0-4, to square bits 5-9, captured squares bits 32-63
+class Move {
+    private Move() {}
+
+    static long pack(int from, int to, int capturedSquares) {
+        return from | (to << 5) | ((long) capturedSquares << 32);
+    }
+
+    static int from(long move) {
+        return (int) move & 0x1F;
+    }
+    static int to(long move) {
+        return (int) (move >>> 5) & 0x1F;
+    }
+    static int capturedSquares(long move) {
+        return (int) (move >>> 32);
+    }
+    // the move on Board.flipped()
+    static long flip(long move) {
+        return pack(31 - from(move), 31 - to(move), Integer.reverse(capturedSquares(move)));
+    }
+
+    // "x,y-x,y" per move, separated by spaces
+    static String format(long[] moves, int count) {
+        var text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) text.append(' ');
+            text.append(Board.squareX(from(moves[i]))).append(',').append(Board.squareY(from(moves[i])))
+                    .append('-').append(Board.squareX(to(moves[i]))).append(',').append(Board.squareY(to(moves[i])));
+        }
+        return text.toString();
+    }
+
+    static boolean isCapture(long move) {
+        return (move >>> 32) != 0;
+    }
+
+    // the squares the move lands on, starting with its own square
+    // occupied: the other pieces, a path does not land on them
+    static List<Integer> path(long move, int occupied) {
+        var path = new ArrayList<Integer>();
+        path.add(from(move));
+        if (!isCapture(move)) path.add(to(move));
+        else jumpPath(from(move), to(move), capturedSquares(move), occupied & ~(1 << from(move)), path);
+        return path;
+    }
+
+    // adds the landing squares from square on, jumping every captured square once and ending on to
+    private static boolean jumpPath(int square, int to, int captured, int occupied, List<Integer> path) {
+        if (captured == 0) return square == to;
+
+        int x = Board.squareX(square), y = Board.squareY(square);
+        for (var rest = captured; rest != 0; rest &= rest - 1) {
+            var over = Integer.numberOfTrailingZeros(rest);
+            int landingX = 2 * Board.squareX(over) - x, landingY = 2 * Board.squareY(over) - y;
+            if (Math.abs(landingX - x) != 2 || Math.abs(landingY - y) != 2) continue;
+            if (landingX < 0 || landingX > 7 || landingY < 0 || landingY > 7) continue;
+
+            var landing = Board.square(landingX, landingY);
+            if ((occupied & 1 << landing) != 0) continue;
+            path.add(landing);
+            if (jumpPath(landing, to, captured & ~(1 << over), occupied, path)) return true;
+            path.remove(path.size() - 1);
+        }
+        return false;
+    }
+
+    // the squares jumped along a path of landing squares, every jump takes the piece halfway
+    // a path of two squares may be a quiet move => 0
+    static int jumpedSquares(int[] path) {
+        var jumped = 0;
+        for (int i = 1; path.length > 2 && i < path.length; i++) {
+            jumped |= 1 << Board.square((Board.squareX(path[i - 1]) + Board.squareX(path[i])) / 2,
+                    (Board.squareY(path[i - 1]) + Board.squareY(path[i])) / 2);
+        }
+        return jumped;
+    }
+}
@@ -0,0 +1,13 @@
+// what Board.unmakeMove needs to take a move back
+class MoveUndo {
+    int from;
+    int to;
+    boolean isAI;
+    boolean promoted;
+    // a king moved without capturing: nothing changed for good, earlier positions can come back
+    boolean reversible;
+    int capturedMen;
+    int capturedKings;
+    long hash;
+    int score;
+}
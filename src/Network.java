@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Learned evaluation, trained by NetworkTrainer: 128 piece-on-square inputs -> hidden -> hidden2 -> 1, good for the AI.
+// The first layer's sums are kept along the moves by the board's Accumulator, changed piece by piece,
+// so a leaf only pays for the two small upper layers.
+//
+// All weights are int16, activations are clipped to 0..1 and stored as 0..QA:
+//   accumulator = b1 + sum of w1[feature] over the pieces                  (scale QA, fits int16: |w1| <= 2)
+//   h = clamp((b2 + w2 * clamp(accumulator, 0, QA)) / QB, 0, QA)           (w2 scale QB, b2 scale QA * QB)
+//   score in men = (b3 + w3 * h) / (QA * QB)                               (w3 scale QB, b3 scale QA * QB)
+//
+// File layout (big endian):
+//   int magic, int version, int hidden, int hidden2
+//   short w1[128][hidden], short b1[hidden], short w2[hidden2][hidden], int b2[hidden2], short w3[hidden2], int b3
+class Network {
+    static final int MAGIC = 0x434B4E4E; // "CKNN"
+    static final int VERSION = 1;
+    // feature: kind * 32 + square, kinds as in Board (AI_MEN, ...)
+    static final int FEATURES = 128;
+    static final int QA = 127;
+    static final int QB = 64;
+
+    final int hidden;
+    final int hidden2;
+    private final short[] w1;
+    private final short[] b1;
+    private final short[] w2;
+    private final int[] b2;
+    private final short[] w3;
+    private final int b3;
+
+    Network(int hidden, int hidden2, short[] w1, short[] b1, short[] w2, int[] b2, short[] w3, int b3) {
+        this.hidden = hidden;
+        this.hidden2 = hidden2;
+        this.w1 = w1;
+        this.b1 = b1;
+        this.w2 = w2;
+        this.b2 = b2;
+        this.w3 = w3;
+        this.b3 = b3;
+    }
+
+    static Network open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) throw new IllegalArgumentException("not a network file");
+
+            var hidden = data.getInt();
+            var hidden2 = data.getInt();
+            var w1 = readShorts(data, FEATURES * hidden);
+            var b1 = readShorts(data, hidden);
+            var w2 = readShorts(data, hidden2 * hidden);
+            var b2 = new int[hidden2];
+            for (int i = 0; i < hidden2; i++) b2[i] = data.getInt();
+            var w3 = readShorts(data, hidden2);
+            return new Network(hidden, hidden2, w1, b1, w2, b2, w3, data.getInt());
+        }
+    }
+
+    // null if the file is missing or broken, the engine then uses the piece-square evaluation
+    static Network load(String file) {
+        var path = Paths.get(file);
+        if (!Files.exists(path)) return null;
+
+        try {
+            return open(path);
+        } catch (IOException | IllegalArgumentException | java.nio.BufferUnderflowException e) {
+            System.out.println("Network not loaded: " + e);
+            return null;
+        }
+    }
+
+    private static short[] readShorts(ByteBuffer data, int count) {
+        var values = new short[count];
+        data.asShortBuffer().get(values);
+        data.position(data.position() + 2 * count);
+        return values;
+    }
+
+    void write(Path file) throws IOException {
+        var data = ByteBuffer.allocate(16 + 2 * (FEATURES * hidden + hidden + hidden2 * hidden + hidden2) + 4 * (hidden2 + 1));
+        data.putInt(MAGIC).putInt(VERSION).putInt(hidden).putInt(hidden2);
+        data.asShortBuffer().put(w1).put(b1).put(w2);
+        data.position(data.position() + 2 * (w1.length + b1.length + w2.length));
+        for (var bias : b2) data.putInt(bias);
+        data.asShortBuffer().put(w3);
+        data.position(data.position() + 2 * w3.length);
+        data.putInt(b3);
+
+        data.flip();
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) channel.write(data);
+        }
+    }
+
+    // the accumulator of the position from scratch
+    void refresh(Board board, short[] accumulator) {
+        System.arraycopy(b1, 0, accumulator, 0, hidden);
+        addFeatures(accumulator, Board.AI_MEN, board.aiMen, 1);
+        addFeatures(accumulator, Board.AI_KINGS, board.aiKings, 1);
+        addFeatures(accumulator, Board.PLAYER_MEN, board.playerMen, 1);
+        addFeatures(accumulator, Board.PLAYER_KINGS, board.playerKings, 1);
+    }
+
+    static int feature(int kind, int square) {
+        return kind * 32 + square;
+    }
+
+    // sign 1 adds the pieces, -1 removes them
+    void addFeatures(short[] accumulator, int kind, int squares, int sign) {
+        for (; squares != 0; squares &= squares - 1) addFeature(accumulator, feature(kind, Integer.numberOfTrailingZeros(squares)), sign);
+    }
+
+    void addFeature(short[] accumulator, int feature, int sign) {
+        var offset = feature * hidden;
+        for (int i = 0; i < hidden; i++) accumulator[i] += sign * w1[offset + i];
+    }
+
+    // good for the AI, in men; activations: a buffer of hidden values
+    // plain loops over arrays the JIT can vectorize
+    float evaluate(short[] accumulator, short[] activations) {
+        for (int i = 0; i < hidden; i++) activations[i] = (short) Math.max(0, Math.min(QA, accumulator[i]));
+
+        var output = b3;
+        for (int j = 0; j < hidden2; j++) {
+            var sum = b2[j];
+            var offset = j * hidden;
+            for (int i = 0; i < hidden; i++) sum += activations[i] * w2[offset + i];
+            output += Math.max(0, Math.min(QA, sum / QB)) * w3[j];
+        }
+        return output / (float) (QA * QB);
+    }
+}
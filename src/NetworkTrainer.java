@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+// Trains the Network evaluation on the positions of a game record file, on the CPU.
+// usage: java NetworkTrainer <games.ckgr> <out.cknn> [epochs=20] [hidden=32] [hidden2=8]
+//
+// Record games with scores first, e.g. java SelfPlay 4 20000 20000 8 100000 all all games.ckgr
+// Every quiet position with a score is a sample, seen from both sides (Board.flipped). Its target is a win
+// probability: the search score through a sigmoid, blended with the game's result. Trained in floats with Adam
+// on minibatches, then written as int16 (see Network), the validation loss is shown for both.
+//
+// The inputs are the pieces only, not whose turn it is: the search asks both sides' positions from the AI's view.
+public class NetworkTrainer {
+    // a score of SCALE men => 73% to win
+    private static final float SCALE = 2f;
+    // share of the search score in the target, the rest is the result
+    private static final float LAMBDA = 0.7f;
+    // wins found by the search or the tablebase say nothing about the position's value
+    private static final int MAX_STORED_SCORE = 20 * Evaluation.UNIT;
+    private static final int BATCH = 256;
+    private static final float LEARNING_RATE = 0.001f;
+    private static final float VALIDATION_SHARE = 0.05f;
+    // keeps the int16 accumulator from overflowing: 24 pieces * 2 * QA < 32767
+    private static final float MAX_W1 = 2f;
+    private static final float MAX_W2 = Short.MAX_VALUE / (float) Network.QB;
+
+    private final int hidden;
+    private final int hidden2;
+
+    // all parameters in one array so Adam runs over them in one loop: w1, b1, w2, b2, w3, b3
+    private final float[] params;
+    private final float[] gradients;
+    private final float[] moment;
+    private final float[] velocity;
+    private final int w1, b1, w2, b2, w3, b3;
+    private int steps;
+
+    // per sample buffers
+    private final float[] accumulator;
+    private final float[] hidden2Sums;
+    private final float[] hidden2Gradients;
+    private final int[] features = new int[32];
+
+    // samples: pieces as four square masks (Board.AI_MEN, ...) and the target, good for the AI
+    private int[] pieces = new int[4 * 1024];
+    private float[] targets = new float[1024];
+    private int samples;
+
+    NetworkTrainer(int hidden, int hidden2) {
+        this.hidden = hidden;
+        this.hidden2 = hidden2;
+        w1 = 0;
+        b1 = w1 + Network.FEATURES * hidden;
+        w2 = b1 + hidden;
+        b2 = w2 + hidden2 * hidden;
+        w3 = b2 + hidden2;
+        b3 = w3 + hidden2;
+        params = new float[b3 + 1];
+        gradients = new float[params.length];
+        moment = new float[params.length];
+        velocity = new float[params.length];
+        accumulator = new float[hidden];
+        hidden2Sums = new float[hidden2];
+        hidden2Gradients = new float[hidden2];
+
+        // activations start inside 0..1, where the clipped ReLU has a slope
+        var random = new Random(1);
+        for (int i = w1; i < b1; i++) params[i] = (float) random.nextGaussian() * 0.1f;
+        for (int i = b1; i < w2; i++) params[i] = 0.5f;
+        for (int i = w2; i < b2; i++) params[i] = (float) (random.nextGaussian() / Math.sqrt(hidden));
+        for (int i = b2; i < w3; i++) params[i] = 0.5f;
+        for (int i = w3; i < b3; i++) params[i] = (float) (random.nextGaussian() / Math.sqrt(hidden2));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: java NetworkTrainer <games.ckgr> <out.cknn> [epochs=20] [hidden=32] [hidden2=8]");
+            return;
+        }
+        var epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        var trainer = new NetworkTrainer(args.length > 3 ? Integer.parseInt(args[3]) : 32, args.length > 4 ? Integer.parseInt(args[4]) : 8);
+
+        var games = trainer.read(args[0]);
+        System.out.println(trainer.samples + " samples from " + games + " games");
+        if (trainer.samples == 0) return;
+
+        trainer.shuffle(new Random(2), trainer.samples);
+        var validation = (int) (trainer.samples * VALIDATION_SHARE);
+        var training = trainer.samples - validation;
+        System.out.printf("piece-square evaluation: validation loss %.5f%n", trainer.pieceSquareLoss(training, trainer.samples));
+
+        var random = new Random(3);
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            var startTime = System.nanoTime();
+            // a tenth of the rate for the last third
+            var rate = epoch > epochs * 2 / 3 ? LEARNING_RATE / 10 : LEARNING_RATE;
+            trainer.shuffle(random, training);
+
+            var loss = 0.0;
+            for (int start = 0; start < training; start += BATCH) loss += trainer.trainBatch(start, Math.min(training, start + BATCH), rate);
+            System.out.printf("epoch %d: loss %.5f, validation loss %.5f, %.1fs%n",
+                    epoch, loss / training, trainer.loss(training, trainer.samples), (System.nanoTime() - startTime) / 1e9);
+        }
+
+        var network = trainer.quantize();
+        System.out.printf("int16: validation loss %.5f%n", trainer.quantizedLoss(network, training, trainer.samples));
+        network.write(Paths.get(args[1]));
+        System.out.println("written to " + args[1]);
+    }
+
+    // returns the number of games
+    private int read(String file) throws IOException {
+        var games = 0;
+        try (var reader = GameRecordReader.open(Paths.get(file), true)) {
+            for (var game = reader.next(); game != null; game = reader.next()) {
+                // of the AI, -1 => unfinished
+                var result = game.result == 1 ? 1f : game.result == 0 ? 0f : game.result == 2 ? 0.5f : -1f;
+                game.forEachPosition((board, isAIsTurn, ply, score) -> {
+                    if (score == GameRecord.NO_SCORE || Math.abs(score) >= MAX_STORED_SCORE) return;
+                    // the side to move captures, the position is not what a leaf evaluation sees
+                    if (board.getCaptureSources(isAIsTurn) != 0) return;
+
+                    var aiScore = GameRecord.fromStored(score) * (isAIsTurn ? 1 : -1);
+                    var target = sigmoid(aiScore / SCALE);
+                    if (result >= 0) target = LAMBDA * target + (1 - LAMBDA) * result;
+                    add(board, target);
+                    add(board.flipped(), 1 - target);
+                });
+                games++;
+            }
+        }
+        return games;
+    }
+
+    private void add(Board board, float target) {
+        if (samples == targets.length) {
+            targets = Arrays.copyOf(targets, 2 * samples);
+            pieces = Arrays.copyOf(pieces, 8 * samples);
+        }
+        pieces[4 * samples + Board.AI_MEN] = board.aiMen;
+        pieces[4 * samples + Board.AI_KINGS] = board.aiKings;
+        pieces[4 * samples + Board.PLAYER_MEN] = board.playerMen;
+        pieces[4 * samples + Board.PLAYER_KINGS] = board.playerKings;
+        targets[samples++] = target;
+    }
+
+    // the first count samples among themselves
+    private void shuffle(Random random, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            var j = random.nextInt(i + 1);
+            var target = targets[i];
+            targets[i] = targets[j];
+            targets[j] = target;
+            for (int k = 0; k < 4; k++) {
+                var squares = pieces[4 * i + k];
+                pieces[4 * i + k] = pieces[4 * j + k];
+                pieces[4 * j + k] = squares;
+            }
+        }
+    }
+
+    private static float sigmoid(float x) {
+        return 1 / (1 + (float) Math.exp(-x));
+    }
+
+    private static float clip(float x) {
+        return Math.max(0, Math.min(1, x));
+    }
+
+    // fills features, returns how many
+    private int features(int sample) {
+        var count = 0;
+        for (int kind = 0; kind < 4; kind++) {
+            for (var squares = pieces[4 * sample + kind]; squares != 0; squares &= squares - 1) {
+                features[count++] = kind * 32 + Integer.numberOfTrailingZeros(squares);
+            }
+        }
+        return count;
+    }
+
+    // the score in men, leaves the layers' sums in accumulator and hidden2Sums
+    private float forward(int featureCount) {
+        System.arraycopy(params, b1, accumulator, 0, hidden);
+        for (int f = 0; f < featureCount; f++) {
+            var offset = w1 + features[f] * hidden;
+            for (int i = 0; i < hidden; i++) accumulator[i] += params[offset + i];
+        }
+
+        var output = params[b3];
+        for (int j = 0; j < hidden2; j++) {
+            var sum = params[b2 + j];
+            var offset = w2 + j * hidden;
+            for (int i = 0; i < hidden; i++) sum += clip(accumulator[i]) * params[offset + i];
+            hidden2Sums[j] = sum;
+            output += clip(sum) * params[w3 + j];
+        }
+        return output;
+    }
+
+    // adds the gradients of one sample's squared error, returns the error
+    private float backward(int featureCount, float target) {
+        var prediction = sigmoid(forward(featureCount) / SCALE);
+        var error = prediction - target;
+        var d = 2 * error * prediction * (1 - prediction) / SCALE;
+
+        gradients[b3] += d;
+        for (int j = 0; j < hidden2; j++) {
+            var sum = hidden2Sums[j];
+            gradients[w3 + j] += d * clip(sum);
+            // the clipped ReLU passes gradients only between 0 and 1
+            hidden2Gradients[j] = sum > 0 && sum < 1 ? d * params[w3 + j] : 0;
+            if (hidden2Gradients[j] == 0) continue;
+
+            gradients[b2 + j] += hidden2Gradients[j];
+            var offset = w2 + j * hidden;
+            for (int i = 0; i < hidden; i++) gradients[offset + i] += hidden2Gradients[j] * clip(accumulator[i]);
+        }
+
+        for (int i = 0; i < hidden; i++) {
+            if (accumulator[i] <= 0 || accumulator[i] >= 1) continue;
+
+            var dValue = 0f;
+            for (int j = 0; j < hidden2; j++) dValue += hidden2Gradients[j] * params[w2 + j * hidden + i];
+            gradients[b1 + i] += dValue;
+            for (int f = 0; f < featureCount; f++) gradients[w1 + features[f] * hidden + i] += dValue;
+        }
+        return error * error;
+    }
+
+    // one Adam step on the samples from start to end, returns their summed loss
+    private double trainBatch(int start, int end, float rate) {
+        Arrays.fill(gradients, 0);
+        var loss = 0.0;
+        for (int sample = start; sample < end; sample++) loss += backward(features(sample), targets[sample]);
+
+        steps++;
+        var scale = 1f / (end - start);
+        var correction1 = 1 - Math.pow(0.9, steps);
+        var correction2 = 1 - Math.pow(0.999, steps);
+        var stepSize = (float) (rate * Math.sqrt(correction2) / correction1);
+        for (int i = 0; i < params.length; i++) {
+            var gradient = gradients[i] * scale;
+            moment[i] = 0.9f * moment[i] + 0.1f * gradient;
+            velocity[i] = 0.999f * velocity[i] + 0.001f * gradient * gradient;
+            params[i] -= stepSize * moment[i] / ((float) Math.sqrt(velocity[i]) + 1e-8f);
+        }
+
+        for (int i = w1; i < w2; i++) params[i] = Math.max(-MAX_W1, Math.min(MAX_W1, params[i]));
+        for (int i = w2; i < params.length; i++) params[i] = Math.max(-MAX_W2, Math.min(MAX_W2, params[i]));
+        return loss;
+    }
+
+    private double loss(int start, int end) {
+        var loss = 0.0;
+        for (int sample = start; sample < end; sample++) {
+            var error = sigmoid(forward(features(sample)) / SCALE) - targets[sample];
+            loss += error * error;
+        }
+        return loss / (end - start);
+    }
+
+    private double quantizedLoss(Network network, int start, int end) {
+        var sums = new short[hidden];
+        var activations = new short[hidden];
+        var loss = 0.0;
+        for (int sample = start; sample < end; sample++) {
+            network.refresh(board(sample), sums);
+            var error = sigmoid(network.evaluate(sums, activations) / SCALE) - targets[sample];
+            loss += error * error;
+        }
+        return loss / (end - start);
+    }
+
+    // the evaluation without a network on the same samples
+    private double pieceSquareLoss(int start, int end) {
+        var loss = 0.0;
+        for (int sample = start; sample < end; sample++) {
+            var error = sigmoid(Evaluation.score(board(sample)) / SCALE) - targets[sample];
+            loss += error * error;
+        }
+        return loss / (end - start);
+    }
+
+    private Board board(int sample) {
+        var board = new Board();
+        board.setPieces(pieces[4 * sample + Board.AI_MEN], pieces[4 * sample + Board.AI_KINGS],
+                pieces[4 * sample + Board.PLAYER_MEN], pieces[4 * sample + Board.PLAYER_KINGS]);
+        return board;
+    }
+
+    private Network quantize() {
+        var b2Values = new int[hidden2];
+        for (int j = 0; j < hidden2; j++) b2Values[j] = Math.round(params[b2 + j] * Network.QA * Network.QB);
+        return new Network(hidden, hidden2,
+                quantize(w1, b1, Network.QA), quantize(b1, w2, Network.QA), quantize(w2, b2, Network.QB),
+                b2Values, quantize(w3, b3, Network.QB), Math.round(params[b3] * Network.QA * Network.QB));
+    }
+
+    private short[] quantize(int start, int end, int scale) {
+        var values = new short[end - start];
+        for (int i = start; i < end; i++) {
+            values[i - start] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(params[i] * scale)));
+        }
+        return values;
+    }
+}
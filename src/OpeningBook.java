@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Opening moves built by OpeningBookBuilder, memory-mapped and looked up before a search.
+//
+// File layout (big endian):
+//   int magic, int version, int entryCount
+//   per entry, sorted by key: long key (Board.getHash of the position), short move
+//
+// move: from square bits 0-4, to square bits 5-9
+class OpeningBook {
+    static final int MAGIC = 0x434B4F42; // "CKOB"
+    static final int VERSION = 1;
+    static final int NO_MOVE = -1;
+    static final int HEADER_BYTES = 12;
+    static final int ENTRY_BYTES = 10;
+
+    private final MappedByteBuffer data;
+    private final int entryCount;
+
+    private OpeningBook(MappedByteBuffer data) {
+        this.data = data;
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) throw new IllegalArgumentException("not an opening book file");
+        entryCount = data.getInt(8);
+    }
+
+    static OpeningBook open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // null if the file is missing or broken, the engine then searches every move
+    static OpeningBook load(String file) {
+        var path = Paths.get(file);
+        if (!Files.exists(path)) return null;
+
+        try {
+            return open(path);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Opening book not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    int size() {
+        return entryCount;
+    }
+
+    // book move of the position or NO_MOVE, moves which are not legal (hash collision) are ignored
+    int probe(Board board, boolean isAIsTurn) {
+        var key = board.getHash(isAIsTurn);
+        int low = 0, high = entryCount - 1;
+
+        while (low <= high) {
+            var mid = (low + high) >>> 1;
+            var entry = HEADER_BYTES + (long) mid * ENTRY_BYTES;
+            var midKey = data.getLong((int) entry);
+
+            if (midKey < key) low = mid + 1;
+            else if (midKey > key) high = mid - 1;
+            else {
+                int move = data.getShort((int) entry + 8);
+                return isLegal(board, isAIsTurn, move) ? move : NO_MOVE;
+            }
+        }
+        return NO_MOVE;
+    }
+
+    private static boolean isLegal(Board board, boolean isAIsTurn, int move) {
+        var moves = new long[Board.MAX_MOVES];
+        var count = board.genAllMoves(isAIsTurn, moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.from(moves[i]) == from(move) && Move.to(moves[i]) == to(move)) return true;
+        }
+        return false;
+    }
+
+    static int pack(int from, int to) {
+        return from | to << 5;
+    }
+    static int from(int move) {
+        return move & 0x1F;
+    }
+    static int to(int move) {
+        return (move >>> 5) & 0x1F;
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Builds the opening book by searching every position the AI can face in the first plies.
+// usage: java OpeningBookBuilder [plies] [depth] [file] [threads]
+//
+// Every reply of the player is followed, but only the book move of the AI, so the book stays small.
+// Both starting sides are covered, positions reached by transposition are searched once.
+public class OpeningBookBuilder {
+    private final int plies;
+    private final int depth;
+    private final int threads;
+    private final TranspositionTable transpositionTable = new TranspositionTable(256);
+
+    // sorted like the file, by signed key
+    private final TreeMap<Long, Integer> entries = new TreeMap<>();
+    private final Set<Long> visited = new HashSet<>();
+
+    OpeningBookBuilder(int plies, int depth, int threads) {
+        this.plies = plies;
+        this.depth = depth;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var plies = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        var depth = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        var file = args.length > 2 ? args[2] : "book.ckob";
+        var threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        var builder = new OpeningBookBuilder(plies, depth, threads);
+        var startTime = System.nanoTime();
+        builder.expand(new Board(), false, 0);
+        builder.expand(new Board(), true, 0);
+        builder.write(file);
+        System.out.printf("%d positions to depth %d written to %s in %.1fs%n", builder.entries.size(), depth, file, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    private void expand(Board board, boolean isAIsTurn, int ply) {
+        if (ply >= plies || board.gameIsOver(isAIsTurn) != -1) return;
+        if (!visited.add(board.getHash(isAIsTurn))) return;
+
+        if (isAIsTurn) {
+            var move = bookMove(board);
+            var undo = board.makeMove(move);
+            expand(board, false, ply + 1);
+            board.unmakeMove(undo);
+        } else {
+            var moves = new long[Board.MAX_MOVES];
+            var count = board.genAllMoves(false, moves);
+            for (int i = 0; i < count; i++) {
+                var undo = board.makeMove(moves[i]);
+                expand(board, true, ply + 1);
+                board.unmakeMove(undo);
+            }
+        }
+    }
+
+    private long bookMove(Board board) {
+        var result = Search.parallelSearch(board, transpositionTable, null, SearchOptions.all(), null, threads, Math.min(5, depth), 1, TimeManager.fixedDepth(depth), null);
+        entries.put(board.getHash(true), OpeningBook.pack(Move.from(result.move), Move.to(result.move)));
+
+        if (entries.size() % 100 == 0) System.out.println(entries.size() + " positions searched");
+        return result.move;
+    }
+
+    void write(String file) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+
+            for (var entry : entries.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeShort(entry.getValue());
+            }
+        }
+    }
+}
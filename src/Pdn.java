@@ -0,0 +1,269 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Converts game record files to PDN (Portable Draughts Notation) text and back.
+// usage: java Pdn <in.ckgr> <out.pdn>   or   java Pdn <in.pdn> <out.ckgr>
+//
+// The player is Black and the AI White, so a game the player starts is a standard game without a FEN tag.
+// PDN numbers the squares 1 - 32 from Black's side with Black at the top: the player's men start on 1 - 12.
+// Result tags read like chess: "1-0" => White (the AI) won. Scores are kept as {comments} after their move.
+public class Pdn {
+    private static final Pattern TAG = Pattern.compile("\\[(\\w+)\\s+\"([^\"]*)\"\\]");
+    // comments, results, move numbers, moves (11-15, 15x24, 15x24x31), results first so 1-0 is no move
+    private static final Pattern TOKEN = Pattern.compile("\\{([^}]*)\\}|(1-0|0-1|1/2-1/2|\\*)|(\\d+)\\.|(\\d+(?:[-x]\\d+)+)");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("usage: java Pdn <in.ckgr> <out.pdn> | <in.pdn> <out.ckgr>");
+            return;
+        }
+        var in = Paths.get(args[0]);
+        var out = Paths.get(args[1]);
+        var games = 0;
+
+        if (args[0].endsWith(".pdn")) {
+            try (var writer = GameRecordWriter.create(out)) {
+                for (var game : read(Files.readString(in))) {
+                    writer.write(game);
+                    games++;
+                }
+            }
+        } else {
+            try (var reader = GameRecordReader.open(in, true); var writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+                for (var game = reader.next(); game != null; game = reader.next()) {
+                    write(game, writer);
+                    games++;
+                }
+            }
+        }
+        System.out.println(games + " games written to " + out);
+    }
+
+    // PDN square 1 - 32 of a board square: rows from the player's back row, right to left
+    static int toPdn(int square) {
+        var y = Board.squareY(square);
+        var file = 7 - Board.squareX(square);
+        return y * 4 + (y % 2 == 0 ? file - 1 : file) / 2 + 1;
+    }
+
+    static int fromPdn(int number) {
+        if (number < 1 || number > 32) throw new IllegalArgumentException("no square " + number);
+        var row = (number - 1) / 4;
+        var index = (number - 1) % 4;
+        var file = row % 2 == 0 ? 2 * index + 1 : 2 * index;
+        return Board.square(7 - file, row);
+    }
+
+    static void write(GameRecord game, BufferedWriter out) throws IOException {
+        out.write("[Event \"Checkers-AI\"]\n");
+        out.write("[Black \"Player\"]\n");
+        out.write("[White \"AI\"]\n");
+        out.write("[Result \"" + resultText(game.result) + "\"]\n");
+        if (game.aiStarts || !isStartPosition(game.start)) out.write("[FEN \"" + fen(game.start, game.aiStarts) + "\"]\n");
+        out.write('\n');
+
+        var text = new StringBuilder();
+        var legal = new long[Board.MAX_MOVES];
+        var board = new Board(game.start);
+        var isAIsTurn = game.aiStarts;
+
+        for (int ply = 0; ply < game.getPlies(); ply++) {
+            // moves are numbered in pairs, the first one of a game may be White's
+            if (ply == 0 && isAIsTurn) text.append("1... ");
+            else if (!isAIsTurn) text.append((ply + (game.aiStarts ? 1 : 0)) / 2 + 1).append(". ");
+
+            var move = GameRecord.findMove(board, isAIsTurn, game.getMove(ply), legal);
+            text.append(formatMove(board, isAIsTurn, move, legal)).append(' ');
+            if (game.getScore(ply) != GameRecord.NO_SCORE) text.append('{').append(GameRecord.fromStored(game.getScore(ply))).append("} ");
+
+            board.makeMove(move);
+            isAIsTurn = !isAIsTurn;
+        }
+        text.append(resultText(game.result));
+
+        out.write(wrap(text.toString()));
+        out.write("\n\n");
+    }
+
+    // every game of the text, moves are checked against the move generator
+    static List<GameRecord> read(String text) {
+        var games = new ArrayList<GameRecord>();
+        // a game is its tags followed by its moves, a tag after moves starts the next game
+        var game = new StringBuilder();
+        var hasMoves = false;
+        for (var line : text.split("\\R")) {
+            var isTag = line.startsWith("[");
+            if (isTag && hasMoves) {
+                games.add(readGame(game.toString()));
+                game.setLength(0);
+                hasMoves = false;
+            }
+            if (!isTag && !line.isBlank()) hasMoves = true;
+            game.append(line).append('\n');
+        }
+        if (hasMoves) games.add(readGame(game.toString()));
+        return games;
+    }
+
+    private static GameRecord readGame(String text) {
+        String fen = null;
+        var result = -1;
+        var tags = TAG.matcher(text);
+        var movesStart = 0;
+        while (tags.find()) {
+            if (tags.group(1).equals("FEN")) fen = tags.group(2);
+            if (tags.group(1).equals("Result")) result = parseResult(tags.group(2));
+            movesStart = tags.end();
+        }
+
+        var board = new Board();
+        var isAIsTurn = false;
+        if (fen != null) {
+            isAIsTurn = parseFen(fen, board);
+        }
+        var game = new GameRecord(board, isAIsTurn);
+        game.result = result;
+
+        Matcher tokens = TOKEN.matcher(text.substring(movesStart));
+        while (tokens.find()) {
+            if (tokens.group(1) != null && game.getPlies() > 0) {
+                // a score comment belongs to the move before it
+                try {
+                    var score = Float.parseFloat(tokens.group(1).trim());
+                    game.setScore(game.getPlies() - 1, GameRecord.toStored(score));
+                } catch (NumberFormatException e) {
+                    // any other comment
+                }
+            } else if (tokens.group(4) != null) {
+                var move = parseMove(board, isAIsTurn, tokens.group(4));
+                game.add(board, isAIsTurn, move, Float.NaN);
+                board.makeMove(move);
+                isAIsTurn = !isAIsTurn;
+            }
+        }
+        return game;
+    }
+
+    // "11-15" or "15x24", the whole path "15x24x31" when another capture joins the same squares
+    private static String formatMove(Board board, boolean isAIsTurn, long move, long[] legal) {
+        var from = Move.from(move);
+        var to = Move.to(move);
+        if (!Move.isCapture(move)) return toPdn(from) + "-" + toPdn(to);
+
+        var count = board.genAllMoves(isAIsTurn, legal);
+        var ambiguous = false;
+        for (int i = 0; i < count; i++) {
+            if (legal[i] != move && Move.from(legal[i]) == from && Move.to(legal[i]) == to) ambiguous = true;
+        }
+        if (!ambiguous) return toPdn(from) + "x" + toPdn(to);
+
+        var text = new StringBuilder();
+        for (var square : Move.path(move, board.pieces(true) | board.pieces(false))) {
+            if (text.length() > 0) text.append('x');
+            text.append(toPdn(square));
+        }
+        return text.toString();
+    }
+
+    // the legal move of the text, a capture given by its squares only is the path Board.findMove picks
+    private static long parseMove(Board board, boolean isAIsTurn, String text) {
+        var squares = text.split("[-x]");
+        var path = new int[squares.length];
+        for (int i = 0; i < squares.length; i++) path[i] = fromPdn(Integer.parseInt(squares[i]));
+
+        var move = board.findMove(isAIsTurn, path);
+        if (move == Search.NO_MOVE) throw new IllegalArgumentException("illegal move " + text);
+        return move;
+    }
+
+    private static boolean isStartPosition(Board board) {
+        var start = new Board();
+        return board.aiMen == start.aiMen && board.aiKings == start.aiKings
+                && board.playerMen == start.playerMen && board.playerKings == start.playerKings;
+    }
+
+    // "B:W21,22,K30:B1,2,3": side to move, then White's (AI) and Black's (player) squares, K => king
+    static String fen(Board board, boolean isAIsTurn) {
+        return (isAIsTurn ? "W" : "B") + ":W" + fenSquares(board.aiMen, board.aiKings) + ":B" + fenSquares(board.playerMen, board.playerKings);
+    }
+
+    private static String fenSquares(int men, int kings) {
+        var numbers = new ArrayList<String>();
+        for (int number = 1; number <= 32; number++) {
+            var bit = 1 << fromPdn(number);
+            if ((men & bit) != 0) numbers.add(Integer.toString(number));
+            if ((kings & bit) != 0) numbers.add("K" + number);
+        }
+        return String.join(",", numbers);
+    }
+
+    // sets the board, returns isAIsTurn
+    static boolean parseFen(String fen, Board board) {
+        var fields = fen.trim().split(":");
+        if (fields.length != 3 || !(fields[0].equals("W") || fields[0].equals("B"))) throw new IllegalArgumentException("bad FEN " + fen);
+
+        int aiMen = 0, aiKings = 0, playerMen = 0, playerKings = 0;
+        for (int i = 1; i < 3; i++) {
+            var isAI = fields[i].startsWith("W");
+            if (!isAI && !fields[i].startsWith("B")) throw new IllegalArgumentException("bad FEN " + fen);
+
+            for (var piece : fields[i].substring(1).split(",")) {
+                if (piece.isEmpty()) continue;
+                var isKing = piece.startsWith("K");
+                var bit = 1 << fromPdn(Integer.parseInt(isKing ? piece.substring(1) : piece));
+                if (isAI && isKing) aiKings |= bit;
+                else if (isAI) aiMen |= bit;
+                else if (isKing) playerKings |= bit;
+                else playerMen |= bit;
+            }
+        }
+        board.setPieces(aiMen, aiKings, playerMen, playerKings);
+        return fields[0].equals("W");
+    }
+
+    private static String resultText(int result) {
+        switch (result) {
+            case 0: return "0-1";
+            case 1: return "1-0";
+            case 2: return "1/2-1/2";
+            default: return "*";
+        }
+    }
+
+    private static int parseResult(String text) {
+        switch (text) {
+            case "0-1": return 0;
+            case "1-0": return 1;
+            case "1/2-1/2": return 2;
+            default: return -1;
+        }
+    }
+
+    // lines of at most 80 characters, a move number stays on the line of its move
+    private static String wrap(String text) {
+        var wrapped = new StringBuilder();
+        var lineLength = 0;
+        var words = text.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            var word = words[i];
+            if (word.endsWith(".") && i + 1 < words.length) word += " " + words[++i];
+            if (lineLength > 0 && lineLength + 1 + word.length() > 80) {
+                wrapped.append('\n');
+                lineLength = 0;
+            } else if (lineLength > 0) {
+                wrapped.append(' ');
+                lineLength++;
+            }
+            wrapped.append(word);
+            lineLength += word.length();
+        }
+        return wrapped.toString();
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// Checks the ways a game is stored against each other: random games, most from random positions with either
+// side to move, go through a game record file, read mapped and streamed, and through PDN text, and must come
+// back with the same start, moves, scores and result. Half the games open with a capture which shares its
+// squares with another path, either path, which must be kept. Also checks FEN both ways and that PDN lines
+// stay within 80 characters without a move number at their end.
+// usage: java PdnCheck [games] [seed]
+public class PdnCheck {
+    private static final int MAX_PLIES = 150;
+    private static final int MAX_PIECES = 12;
+    private static final double NO_SCORE_CHANCE = 0.2;
+    // the start position with the player to move
+    private static final String START_FEN = "B:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12";
+    private static final Pattern MOVE_NUMBER_AT_END = Pattern.compile("\\d+\\.+$");
+
+    // captures played which share their squares with another path, and of them the ones not capturing the lowest squares
+    private static int sharedCaptures;
+    private static int laterPaths;
+
+    public static void main(String[] args) throws IOException {
+        var count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        var random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+
+        checkFen();
+        var games = new ArrayList<GameRecord>();
+        for (int i = 0; i < count; i++) {
+            var aiStarts = random.nextBoolean();
+            // the start position, a random one, and twice a random one with a shared capture
+            var start = i % 4 == 0 ? new Board() : randomPosition(random, aiStarts, i % 4 >= 2);
+            games.add(randomGame(random, start, aiStarts, i % 4 >= 2));
+        }
+        if (laterPaths == 0) Checks.fail("every shared capture took the lowest squares, the other paths went unchecked");
+
+        var file = Files.createTempFile("PdnCheck", ".ckgr");
+        try {
+            try (var writer = GameRecordWriter.create(file)) {
+                for (var game : games) writer.write(game);
+            }
+            for (var mapped : new boolean[]{true, false}) {
+                var read = new ArrayList<GameRecord>();
+                try (var reader = GameRecordReader.open(file, mapped)) {
+                    for (var game = reader.next(); game != null; game = reader.next()) read.add(game);
+                }
+                compare(games, read, mapped ? "game record file, mapped" : "game record file, streamed");
+            }
+        } finally {
+            Files.delete(file);
+        }
+
+        var text = new StringWriter();
+        try (var out = new BufferedWriter(text)) {
+            for (var game : games) Pdn.write(game, out);
+        }
+        checkLines(text.toString());
+        compare(games, Pdn.read(text.toString()), "PDN");
+
+        System.out.println(count + " games ok, " + sharedCaptures + " captures sharing their squares with another path");
+    }
+
+    private static void checkFen() {
+        if (!Pdn.fen(new Board(), false).equals(START_FEN)) Checks.fail("FEN of the start position " + Pdn.fen(new Board(), false));
+        var board = new Board();
+        if (Pdn.parseFen(START_FEN, board) || !Checks.samePosition(board, new Board())) Checks.fail("parsing " + START_FEN);
+
+        // White (the AI) to move, kings on 30 and 1, men on 21 and 5
+        var isAIsTurn = Pdn.parseFen("W:W21,K30:BK1,5", board);
+        var expected = new Board();
+        expected.setPieces(1 << Pdn.fromPdn(21), 1 << Pdn.fromPdn(30), 1 << Pdn.fromPdn(5), 1 << Pdn.fromPdn(1));
+        if (!isAIsTurn || !Checks.samePosition(board, expected)) Checks.fail("parsing W:W21,K30:BK1,5");
+    }
+
+    // up to MAX_PIECES of each side, men off the rows they would be promoted on
+    // sharedCapture: the side to move has a capture which shares its squares with another path
+    private static Board randomPosition(Random random, boolean isAIsTurn, boolean sharedCapture) {
+        var moves = new long[Board.MAX_MOVES];
+        var otherMoves = new long[Board.MAX_MOVES];
+        var board = new Board();
+        while (true) {
+            int occupied = 0, aiMen = 0, aiKings = 0, playerMen = 0, playerKings = 0;
+            for (var isAI : new boolean[]{true, false}) {
+                for (int pieces = 1 + random.nextInt(MAX_PIECES); pieces > 0; pieces--) {
+                    var square = random.nextInt(32);
+                    var isKing = random.nextBoolean();
+                    var row = Board.squareY(square);
+                    if ((occupied & 1 << square) != 0 || !isKing && (row == 0 || row == 7)) continue;
+                    occupied |= 1 << square;
+                    if (isAI && isKing) aiKings |= 1 << square;
+                    else if (isAI) aiMen |= 1 << square;
+                    else if (isKing) playerKings |= 1 << square;
+                    else playerMen |= 1 << square;
+                }
+            }
+            board.setPieces(aiMen, aiKings, playerMen, playerKings);
+            var count = board.genAllMoves(isAIsTurn, moves);
+            if (count == 0 || board.genAllMoves(!isAIsTurn, otherMoves) == 0) continue;
+            if (!sharedCapture || sharedCaptures(moves, count).length > 0) return board;
+        }
+    }
+
+    // random moves with random scores, about every fifth move without one
+    // sharedCapture: the first move is a capture which shares its squares with another path
+    private static GameRecord randomGame(Random random, Board start, boolean aiStarts, boolean sharedCapture) {
+        var game = new GameRecord(start, aiStarts);
+        var board = new Board(start);
+        var isAIsTurn = aiStarts;
+        var moves = new long[Board.MAX_MOVES];
+
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            var count = board.genAllMoves(isAIsTurn, moves);
+            if (count == 0) break;
+            var move = moves[random.nextInt(count)];
+            if (ply == 0 && sharedCapture) {
+                var shared = sharedCaptures(moves, count);
+                move = shared[random.nextInt(shared.length)];
+            }
+            if (hasOtherPath(moves, count, move)) {
+                sharedCaptures++;
+                if (GameRecord.pathRank(moves, count, move) > 0) laterPaths++;
+            }
+
+            var score = random.nextDouble() < NO_SCORE_CHANCE ? Float.NaN : GameRecord.fromStored((short) (random.nextInt(4001) - 2000));
+            game.add(board, isAIsTurn, move, score);
+            board.makeMove(move);
+            isAIsTurn = !isAIsTurn;
+        }
+        game.result = board.gameIsOver(isAIsTurn);
+        return game;
+    }
+
+    private static long[] sharedCaptures(long[] moves, int count) {
+        var shared = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            if (hasOtherPath(moves, count, moves[i])) shared.add(moves[i]);
+        }
+        return shared.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static boolean hasOtherPath(long[] moves, int count, long move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] != move && Move.from(moves[i]) == Move.from(move) && Move.to(moves[i]) == Move.to(move)) return true;
+        }
+        return false;
+    }
+
+    private static void checkLines(String text) {
+        var lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].length() > 80) Checks.fail("PDN line " + (i + 1) + " has " + lines[i].length() + " characters");
+            if (MOVE_NUMBER_AT_END.matcher(lines[i]).find()) Checks.fail("PDN line " + (i + 1) + " ends with a move number: " + lines[i]);
+        }
+    }
+
+    private static void compare(List<GameRecord> expected, List<GameRecord> actual, String through) {
+        if (actual.size() != expected.size()) Checks.fail(actual.size() + " games instead of " + expected.size() + " through the " + through);
+        for (int i = 0; i < expected.size(); i++) {
+            GameRecord a = expected.get(i), b = actual.get(i);
+            var where = ", game " + i + " through the " + through;
+            if (!Checks.samePosition(a.start, b.start) || a.aiStarts != b.aiStarts) Checks.fail("another start" + where);
+            if (a.result != b.result) Checks.fail("result " + b.result + " instead of " + a.result + where);
+            if (a.getPlies() != b.getPlies()) Checks.fail(b.getPlies() + " plies instead of " + a.getPlies() + where);
+            for (int ply = 0; ply < a.getPlies(); ply++) {
+                if (a.getMove(ply) != b.getMove(ply)) Checks.fail("another move at ply " + ply + where);
+                if (a.getScore(ply) != b.getScore(ply)) Checks.fail("score " + b.getScore(ply) + " instead of " + a.getScore(ply) + " at ply " + ply + where);
+            }
+        }
+    }
+}
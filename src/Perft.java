@@ -0,0 +1,51 @@
+// Counts the leaf nodes of the move tree from the start position and compares them to the known counts.
+// Checks move generation and make / unmake in one run and reports nodes per second.
+// usage: java Perft [maxDepth]
+public class Perft {
+    // english draughts from the start position, the player (bottom) moves first
+    private static final long[] REFERENCE = {
+            1, 7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680, 18391564, 85242128, 388623673,
+    };
+
+    private final Board board = new Board();
+    private final long[][] moveBuffers;
+    private final MoveUndo[] undos;
+
+    Perft(int maxDepth) {
+        moveBuffers = new long[maxDepth + 1][Board.MAX_MOVES];
+        undos = new MoveUndo[maxDepth + 1];
+        for (int i = 0; i <= maxDepth; i++) undos[i] = new MoveUndo();
+    }
+
+    public static void main(String[] args) {
+        var maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        var failed = false;
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            var startTime = System.nanoTime();
+            var nodes = new Perft(depth).count(false, depth, 0);
+            var seconds = (System.nanoTime() - startTime) / 1e9;
+
+            var status = depth < REFERENCE.length ? (nodes == REFERENCE[depth] ? "ok" : "WRONG, expected " + REFERENCE[depth]) : "no reference";
+            System.out.printf("depth %2d: %,14d nodes %8.2fs %,12.0f nodes/s  %s%n", depth, nodes, seconds, nodes / Math.max(seconds, 1e-9), status);
+            if (status.startsWith("WRONG")) failed = true;
+        }
+        if (failed) System.exit(1);
+    }
+
+    long count(boolean isAIsTurn, int depth, int ply) {
+        if (depth == 0) return 1;
+
+        var moves = moveBuffers[ply];
+        var count = board.genAllMoves(isAIsTurn, moves);
+        if (depth == 1) return count;
+
+        var nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i], undos[ply]);
+            nodes += count(!isAIsTurn, depth - 1, ply + 1);
+            board.unmakeMove(undos[ply]);
+        }
+        return nodes;
+    }
+}
@@ -1,20 +1,14 @@
+// view of a single piece, the board itself only stores bit masks
 class Piece {
     boolean isAI;
     boolean isKing;
-    int ID;
     int boardX;
     int boardY;
 
-    Piece(int id, boolean isPieceAI) {
+    Piece(int x, int y, boolean isPieceAI, boolean isPieceKing) {
         isAI = isPieceAI;
-        isKing = false;
-        ID = id;
-    }
-    Piece(Piece p) {
-        this.isAI = p.isAI;
-        this.isKing = p.isKing;
-        this.ID = p.ID;
-        this.boardX = p.boardX;
-        this.boardY = p.boardY;
+        isKing = isPieceKing;
+        boardX = x;
+        boardY = y;
     }
 }
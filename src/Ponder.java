@@ -0,0 +1,91 @@
+// Searches on the player's time. Everything it finds ends up in the shared transposition table,
+// so the AI's search after the player's move starts with the pondered subtrees already done.
+class Ponder {
+    // past this depth the ponder thread simply stops
+    private static final int MAX_PONDER_DEPTH = 64;
+
+    private final TranspositionTable transpositionTable;
+    private final Tablebase tablebase;
+    private final SearchOptions options;
+    // the engine's evaluation, the table is shared with it
+    private final Network network;
+    private final int minDepth;
+
+    private Thread thread;
+    private TimeManager timeManager;
+
+    Ponder(TranspositionTable transpositionTable, Tablebase tablebase, SearchOptions options, Network network, int minDepth) {
+        this.transpositionTable = transpositionTable;
+        this.tablebase = tablebase;
+        this.options = options;
+        this.network = network;
+        this.minDepth = minDepth;
+    }
+
+    // board: player to move, the board and the history are copied
+    void start(Board board, GameHistory history) {
+        stop();
+
+        var ponderBoard = board.withNetwork(network);
+        var ponderHistory = new GameHistory(history);
+        var ponderTime = TimeManager.infinite();
+        timeManager = ponderTime;
+
+        thread = new Thread(() -> ponder(ponderBoard, ponderHistory, ponderTime), "ponder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // returns once the ponder thread is gone, the table is then free for the real search
+    void stop() {
+        if (thread == null) return;
+
+        timeManager.stop();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void ponder(Board board, GameHistory history, TimeManager timeManager) {
+        var replies = new long[Board.MAX_MOVES];
+        var count = board.genAllMoves(false, replies);
+        if (count == 0) return;
+
+        // the AI's last search stored the reply it expects from the player
+        var predicted = predictedReply(board, replies, count);
+        if (predicted != -1) {
+            var undo = board.makeMove(replies[predicted]);
+            new Search(board, transpositionTable, tablebase, options, after(history, board, undo), timeManager).iterativeDeepening(minDepth, false, null);
+            return;
+        }
+
+        // no prediction: all replies in turn, one ply deeper each round
+        for (var depth = minDepth; depth <= MAX_PONDER_DEPTH && !timeManager.isStopped(); depth++) {
+            for (int i = 0; i < count && !timeManager.isStopped(); i++) {
+                var undo = board.makeMove(replies[i]);
+                new Search(board, transpositionTable, tablebase, options, after(history, board, undo), timeManager).iterativeDeepening(depth, depth, false, null);
+                board.unmakeMove(undo);
+            }
+        }
+    }
+
+    // the history once the player's reply is played, the real game's history stays as it is
+    private static GameHistory after(GameHistory history, Board board, MoveUndo undo) {
+        var afterReply = new GameHistory(history);
+        afterReply.add(board, undo);
+        return afterReply;
+    }
+
+    private int predictedReply(Board board, long[] replies, int count) {
+        var entry = transpositionTable.probe(board.getHash(false));
+        if (entry == 0 || !TranspositionTable.hasMove(entry)) return -1;
+
+        for (int i = 0; i < count; i++) {
+            if (Move.from(replies[i]) == TranspositionTable.moveFrom(entry) && Move.to(replies[i]) == TranspositionTable.moveTo(entry)) return i;
+        }
+        return -1;
+    }
+}
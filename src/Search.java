@@ -0,0 +1,635 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// One search thread. Each thread owns its board, the transposition table is shared (Lazy SMP).
+class Search {
+    private final Board board;
+    private final TranspositionTable transpositionTable;
+    // null => no endgame database
+    private final Tablebase tablebase;
+    private final SearchOptions options;
+    private final TimeManager timeManager;
+
+    // iterations stop at MAX_DEPTH, forced captures below depth 0 can add a few plies up to MAX_PLY
+    static final int MAX_DEPTH = 96;
+    private static final int MAX_PLY = 128;
+    static final long NO_MOVE = -1;
+    // database wins score below a won game (1e5) but far above any evaluation
+    private static final float TABLEBASE_WIN = 5e4f;
+    // score of a won game for the side to move, and a bound no score reaches
+    private static final float WIN = 1e5f;
+    private static final float INFINITY = 1e9f;
+    // in men: the first window around the previous iteration's score, past the maximum the window is opened fully
+    private static final float ASPIRATION_WINDOW = 0.25f;
+    private static final float MAX_ASPIRATION_WINDOW = 4f;
+    // selective search, margins in men: below LMR_MIN_INDEX or a killer no move is reduced,
+    // futility and razoring only near the leaves, ProbCut only where the shallow search is deep enough to trust
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_INDEX = 3;
+    private static final int FUTILITY_DEPTH = 3;
+    private static final float FUTILITY_MARGIN = 0.8f;
+    private static final int RAZORING_DEPTH = 3;
+    private static final float RAZORING_MARGIN = 1.2f;
+    private static final int PROBCUT_DEPTH = 5;
+    private static final int PROBCUT_REDUCTION = 4;
+    private static final float PROBCUT_MARGIN = 1f;
+    // scores past this are wins or database results, no margin applies to them
+    private static final float SELECTIVE_LIMIT = TABLEBASE_WIN / 2;
+    // the time manager is polled once every that many nodes (power of 2)
+    private static final int NODE_CHECK_INTERVAL = 1024;
+
+    // reused at every node, the search itself allocates nothing
+    private final long[][] moveBuffers = new long[MAX_PLY][Board.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY][Board.MAX_MOVES];
+    private final MoveUndo[] undos = new MoveUndo[MAX_PLY];
+
+    // the game's positions since the last capture or man move, then one per ply: keys[rootIndex + ply]
+    private final long[] keys;
+    private final int rootIndex;
+    // per ply, for the draw rule and how far back a repetition can be
+    private final int[] pliesSinceProgress = new int[MAX_PLY + 1];
+    // 0 => no draw rule
+    private final int drawPlies;
+
+    // principal variation: pv[ply][ply..pvLength[ply]) is the best line found from ply on
+    private final long[][] pv = new long[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    // the searched line's variation from the last iteration, searched first while the search follows it
+    private long[] previousPv;
+    private int previousPvLength;
+    private boolean followPv;
+    private long rootBestMove;
+
+    // multi-PV: the best root moves with their variations, best first, from the last iteration which searched them
+    // line k is searched without the root moves of lines 0 .. k-1, previousPv is the searched line's variation
+    private long[] lineMoves = new long[1];
+    private float[] lineScores = new float[1];
+    private long[][] linePvs = new long[1][MAX_PLY + 1];
+    private int[] linePvLengths = new int[1];
+    private int[] lineDepths = new int[1];
+    private int excludedRootMoves;
+
+    // move ordering, per thread so Lazy SMP helpers drift apart from the main thread
+    private static final int PV_MOVE_SCORE = Integer.MAX_VALUE;
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 29;
+    private static final int KILLER_SCORE = 1 << 28;
+    private final int[][] killers = new int[MAX_PLY][2]; // packed from * 32 + to, -1 => none
+    private final int[][][] history = new int[2][32][32]; // [isAI][from][to]
+
+    // nodes is also what the time manager's node limit counts
+    private final SearchStats stats = new SearchStats(MAX_DEPTH);
+    // once set, every node returns at once and the iteration is unwound
+    private boolean aborted;
+    // the main thread always finishes its first iteration, so there is a move to play
+    private boolean abortAllowed;
+
+    // history: null => no earlier positions and no draw rule, otherwise its last position is the board
+    Search(Board board, TranspositionTable transpositionTable, Tablebase tablebase, SearchOptions options, GameHistory history, TimeManager timeManager) {
+        this.board = board;
+        this.transpositionTable = transpositionTable;
+        this.tablebase = tablebase;
+        this.options = options;
+        this.timeManager = timeManager;
+
+        var gameKeys = history == null ? new long[1] : history.reversibleHashes();
+        keys = Arrays.copyOf(gameKeys, gameKeys.length + MAX_PLY);
+        rootIndex = gameKeys.length - 1;
+        pliesSinceProgress[0] = history == null ? 0 : history.getPliesSinceProgress();
+        drawPlies = history == null ? 0 : history.getDrawPlies();
+
+        for (var killer : killers) Arrays.fill(killer, -1);
+        for (int i = 0; i < MAX_PLY; i++) undos[i] = new MoveUndo();
+    }
+
+    // Runs one search per thread on the same table, the first thread's result is returned.
+    // Helper threads only fill the table, half of them one ply deeper than the main thread.
+    // lines and listener: see iterativeDeepening, only the main thread searches several lines and reports
+    static SearchResult parallelSearch(Board board, TranspositionTable transpositionTable, Tablebase tablebase, SearchOptions options, GameHistory history,
+                                       int threads, int minDepth, int lines, TimeManager timeManager, AnalysisListener listener) {
+        var helpers = new ArrayList<Thread>();
+        var helperSearches = new ArrayList<Search>();
+
+        for (int i = 1; i < threads; i++) {
+            // the search makes and unmakes moves, every thread needs its own board
+            var helper = new Search(new Board(board), transpositionTable, tablebase, options, history, timeManager);
+            var helperStartDepth = minDepth + i % 2;
+
+            var thread = new Thread(() -> helper.iterativeDeepening(helperStartDepth, false, null), "search-helper-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            helpers.add(thread);
+            helperSearches.add(helper);
+        }
+
+        var result = new Search(new Board(board), transpositionTable, tablebase, options, history, timeManager).iterativeDeepening(minDepth, timeManager.maxDepth, lines, true, listener);
+
+        timeManager.stop();
+        for (var thread : helpers) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (var helper : helperSearches) result.stats.addThread(helper.stats);
+        return result;
+    }
+
+    SearchResult iterativeDeepening(int startDepth, boolean isMainThread, AnalysisListener listener) {
+        return iterativeDeepening(startDepth, timeManager.maxDepth, 1, isMainThread, listener);
+    }
+
+    SearchResult iterativeDeepening(int startDepth, int maxDepth, boolean isMainThread, AnalysisListener listener) {
+        return iterativeDeepening(startDepth, maxDepth, 1, isMainThread, listener);
+    }
+
+    // lines: how many of the best root moves get an exact score and variation (multi-PV), each costs about one more search
+    // listener: told after every completed iteration of the main thread, null => nobody
+    SearchResult iterativeDeepening(int startDepth, int maxDepth, int lines, boolean isMainThread, AnalysisListener listener) {
+        // captures below depth 0 need plies beyond the deepest iteration
+        maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        // a depth limit below the start depth still gets its move
+        startDepth = Math.min(startDepth, maxDepth);
+        var depth = startDepth;
+        var completedDepth = 0;
+        abortAllowed = !isMainThread;
+        aborted = false;
+        keys[rootIndex] = board.getHash(true);
+        var lineCount = Math.max(1, Math.min(lines, board.genAllMoves(true, moveBuffers[0])));
+        initLines(lineCount);
+
+        while (depth <= maxDepth && (depth == startDepth || timeManager.canStartIteration())) {
+            var nodesAtStart = stats.nodes;
+            var secondsAtStart = timeManager.elapsedSeconds();
+            var iterationEvent = new SearchIterationEvent();
+            iterationEvent.begin();
+
+            for (int line = 0; line < lineCount && !aborted; line++) searchLine(line, depth, depth == startDepth);
+            if (aborted) break;
+
+            completedDepth = depth;
+            abortAllowed = true;
+            sortLines(lineCount);
+            var score = lineScores[0];
+            var bestMove = lineMoves[0];
+
+            stats.finishIteration(depth, nodesAtStart, secondsAtStart, timeManager.elapsedSeconds());
+            if (isMainThread && iterationEvent.shouldCommit()) {
+                iterationEvent.depth = depth;
+                iterationEvent.score = score;
+                iterationEvent.nodes = stats.iterationNodes[depth];
+                iterationEvent.commit();
+            }
+
+            // the next iteration tries this move first
+            if (bestMove != NO_MOVE) {
+                transpositionTable.store(board.getHash(true), score, TranspositionTable.EXACT, depth, Move.from(bestMove), Move.to(bestMove));
+            }
+
+            if (listener != null) {
+                // a copy of the counters, the search goes on changing its own
+                listener.depthCompleted(result(lineCount, depth, stats.snapshot(timeManager.elapsedSeconds())));
+            }
+
+            if (score >= WIN) break; // AI won for sure
+            depth++;
+        }
+
+        stats.searches = 1;
+        stats.seconds = timeManager.elapsedSeconds();
+        return result(lineCount, completedDepth, stats);
+    }
+
+    private void initLines(int lineCount) {
+        if (lineMoves.length < lineCount) {
+            lineMoves = new long[lineCount];
+            lineScores = new float[lineCount];
+            linePvs = new long[lineCount][MAX_PLY + 1];
+            linePvLengths = new int[lineCount];
+            lineDepths = new int[lineCount];
+        }
+        for (int line = 0; line < lineCount; line++) {
+            lineMoves[line] = NO_MOVE;
+            linePvLengths[line] = 0;
+            lineDepths[line] = 0;
+        }
+    }
+
+    // a later line can score above an earlier one, its search saw the table the earlier ones left
+    // insertion sort, stable, the arrays of the lines are swapped and not copied
+    private void sortLines(int lineCount) {
+        for (int i = 1; i < lineCount; i++) {
+            for (int j = i; j > 0 && lineScores[j] > lineScores[j - 1]; j--) {
+                var move = lineMoves[j];
+                lineMoves[j] = lineMoves[j - 1];
+                lineMoves[j - 1] = move;
+                var score = lineScores[j];
+                lineScores[j] = lineScores[j - 1];
+                lineScores[j - 1] = score;
+                var pv = linePvs[j];
+                linePvs[j] = linePvs[j - 1];
+                linePvs[j - 1] = pv;
+                var length = linePvLengths[j];
+                linePvLengths[j] = linePvLengths[j - 1];
+                linePvLengths[j - 1] = length;
+                var lineDepth = lineDepths[j];
+                lineDepths[j] = lineDepths[j - 1];
+                lineDepths[j - 1] = lineDepth;
+            }
+        }
+    }
+
+    // the best root move apart from those of the lines before, with an aspiration window around the line's last score
+    private void searchLine(int line, int depth, boolean isFirstIteration) {
+        excludedRootMoves = line;
+        previousPv = linePvs[line];
+        previousPvLength = linePvLengths[line];
+
+        // the first iteration has no score to center a window on, nor has a line which found no move yet
+        var centered = !isFirstIteration && lineMoves[line] != NO_MOVE;
+        var delta = ASPIRATION_WINDOW;
+        var alpha = centered ? lineScores[line] - delta : -INFINITY;
+        var beta = centered ? lineScores[line] + delta : INFINITY;
+        float score;
+
+        while (true) {
+            // a move from an attempt which failed high must not outlive an aborted re-search
+            rootBestMove = NO_MOVE;
+            followPv = true;
+            score = searchRoot(alpha, beta, depth);
+            if (aborted) break;
+
+            // widen the side which failed, until the window is open
+            delta *= 4;
+            if (score <= alpha) alpha = delta > MAX_ASPIRATION_WINDOW ? -INFINITY : lineScores[line] - delta;
+            else if (score >= beta) beta = delta > MAX_ASPIRATION_WINDOW ? INFINITY : lineScores[line] + delta;
+            else break;
+        }
+
+        // the line's previous move is searched first, so a move found by a cut off attempt
+        // is either that one or one which already proved better, without one the line stays as it was
+        if (rootBestMove != NO_MOVE) {
+            lineMoves[line] = rootBestMove;
+            lineScores[line] = score;
+            lineDepths[line] = depth;
+            linePvLengths[line] = pvLength[0];
+            System.arraycopy(pv[0], 0, linePvs[line], 0, pvLength[0]);
+        }
+    }
+
+    private SearchResult result(int lineCount, int depth, SearchStats stats) {
+        var result = new SearchResult();
+        var bestMove = lineMoves[0];
+        result.move = bestMove;
+        result.score = lineScores[0];
+        result.pv = Arrays.copyOf(linePvs[0], linePvLengths[0]);
+        result.depth = depth;
+        result.stats = stats;
+        result.fromXY = bestMove == NO_MOVE ? new int[]{-1, -1} : toXY(Move.from(bestMove));
+        result.toXY = bestMove == NO_MOVE ? new int[]{-1, -1} : toXY(Move.to(bestMove));
+
+        // a line without a move is one the first iteration did not get to
+        var found = 0;
+        while (found < lineCount && lineMoves[found] != NO_MOVE) found++;
+        result.lines = new SearchResult.Line[found];
+        for (int line = 0; line < found; line++) {
+            result.lines[line] = new SearchResult.Line(lineMoves[line], lineScores[line],
+                    Arrays.copyOf(linePvs[line], linePvLengths[line]), lineDepths[line]);
+        }
+        return result;
+    }
+
+    static int[] toXY(int square) {
+        return new int[]{Board.squareX(square), Board.squareY(square)};
+    }
+
+    // the AI is to move at the root, sets rootBestMove to a move which scored above alpha
+    // the moves of the lines before excludedRootMoves are skipped
+    private float searchRoot(float alpha, float beta, int depth) {
+        pvLength[0] = 0;
+
+        var moves = moveBuffers[0];
+        var moveScores = scoreBuffers[0];
+        var count = board.genAllMoves(true, moves);
+        scoreMoves(moves, moveScores, count, transpositionTable.probe(board.getHash(true)), 0, true);
+
+        var best = -WIN;
+        var searched = 0;
+        for (int i = 0; i < count; i++) {
+            var move = pickNextMove(moves, moveScores, count, i);
+            if (isExcluded(move)) continue;
+
+            board.makeMove(move, undos[0]);
+            var score = searchChild(false, alpha, beta, depth, 0, searched++, 0);
+            board.unmakeMove(undos[0]);
+            if (aborted) break;
+
+            if (score > best) best = score;
+            if (score > alpha) {
+                alpha = score;
+                rootBestMove = move;
+                updatePv(move, 0);
+                if (alpha >= beta) break;
+            }
+        }
+        return best;
+    }
+
+    private boolean isExcluded(long move) {
+        for (int line = 0; line < excludedRootMoves; line++) {
+            if (lineMoves[line] == move) return true;
+        }
+        return false;
+    }
+
+    // principal variation search: the first move with the full window, the others with a null window
+    // which only proves them worse, re-searched with the full window if they turn out better
+    // reduction: plies a late quiet move is searched less deep, a fail high is searched again at full depth
+    private float searchChild(boolean isAIsTurn, float alpha, float beta, int depth, int ply, int index, int reduction) {
+        if (index == 0) {
+            var score = -getMoveValue(isAIsTurn, -beta, -alpha, depth - 1, ply + 1);
+            // only the first move of a node can continue the previous principal variation
+            followPv = false;
+            return score;
+        }
+
+        var score = -getMoveValue(isAIsTurn, -Math.nextUp(alpha), -alpha, depth - 1 - reduction, ply + 1);
+        if (reduction > 0 && score > alpha && !aborted) score = -getMoveValue(isAIsTurn, -Math.nextUp(alpha), -alpha, depth - 1, ply + 1);
+        if (score > alpha && score < beta && !aborted) score = -getMoveValue(isAIsTurn, -beta, -alpha, depth - 1, ply + 1);
+        return score;
+    }
+
+    // negamax: good for the side to move, fail soft
+    // moves are searched best first: previous principal variation, table move, captures by number of pieces taken, killers, history
+    // returns 0 once the search is aborted, callers must check aborted before using the value
+    private float getMoveValue(boolean isAIsTurn, float alpha, float beta, int depth, int ply) {
+        if (depth <= 0) return quiescence(isAIsTurn, alpha, beta, ply);
+
+        pvLength[ply] = ply;
+        if (countNode()) return 0;
+        // the root is always searched, there has to be a move to play
+        if (ply > 0 && isDraw(isAIsTurn, ply)) return 0;
+
+        var tablebaseScore = probeTablebase(isAIsTurn, ply);
+        if (!Float.isNaN(tablebaseScore)) return tablebaseScore;
+
+        // principal variation nodes never end at the table, so the whole variation can be reported
+        var isPvNode = beta > Math.nextUp(alpha);
+        var hash = board.getHash(isAIsTurn);
+        var entry = transpositionTable.probe(hash);
+        stats.tableProbes++;
+        if (entry != 0) stats.tableHits++;
+        if (entry != 0 && !isPvNode && TranspositionTable.depth(entry) >= depth) {
+            var score = TranspositionTable.score(entry);
+            var bound = TranspositionTable.bound(entry);
+
+            if (bound == TranspositionTable.EXACT) return score;
+            if (bound == TranspositionTable.LOWER_BOUND && score >= beta) return score;
+            if (bound == TranspositionTable.UPPER_BOUND && score <= alpha) return score;
+        }
+
+        // selective search: only in quiet positions, where the evaluation is close to what a search returns,
+        // and never at principal variation nodes, so the reported line is searched in full
+        var quiet = !isPvNode && Math.abs(alpha) < SELECTIVE_LIMIT && Math.abs(beta) < SELECTIVE_LIMIT
+                && board.getCaptureSources(isAIsTurn) == 0 && board.getCaptureSources(!isAIsTurn) == 0;
+        // only looked at by the pruning near the leaves, a learned evaluation is worth skipping elsewhere
+        var staticEval = quiet && depth <= Math.max(FUTILITY_DEPTH, RAZORING_DEPTH) ? (isAIsTurn ? getBoardScore(board) : -getBoardScore(board)) : 0;
+
+        // reverse futility: far enough above beta that one side's quiet moves will not bring it back
+        if (quiet && options.futilityPruning && depth <= FUTILITY_DEPTH && staticEval - FUTILITY_MARGIN * depth >= beta) {
+            return staticEval;
+        }
+        // razoring: far below alpha, a depth 1 search has to find a way back up or the node fails low
+        if (quiet && options.razoring && depth >= 2 && depth <= RAZORING_DEPTH && staticEval + RAZORING_MARGIN * depth <= alpha) {
+            var score = getMoveValue(isAIsTurn, alpha, Math.nextUp(alpha), 1, ply);
+            if (aborted) return 0;
+            if (score <= alpha) return score;
+        }
+        // ProbCut: a shallow search clearly above beta stands for the deep one
+        if (quiet && options.probCut && depth >= PROBCUT_DEPTH) {
+            var probCutBeta = beta + PROBCUT_MARGIN;
+            var score = getMoveValue(isAIsTurn, Math.nextDown(probCutBeta), probCutBeta, depth - PROBCUT_REDUCTION, ply);
+            if (aborted) return 0;
+            if (score >= probCutBeta) return score;
+        }
+        // forward futility: far below alpha, only moves which change the material are worth a search
+        var futile = quiet && options.futilityPruning && depth <= FUTILITY_DEPTH && staticEval + FUTILITY_MARGIN * depth <= alpha;
+
+        var alphaAtStart = alpha;
+        var best = -WIN;
+        var bestMove = NO_MOVE;
+
+        var moves = moveBuffers[ply];
+        var moveScores = scoreBuffers[ply];
+        var undo = undos[ply];
+        var count = board.genAllMoves(isAIsTurn, moves);
+        scoreMoves(moves, moveScores, count, entry, ply, isAIsTurn);
+
+        for (int i = 0; i < count; i++) {
+            var move = pickNextMove(moves, moveScores, count, i);
+
+            board.makeMove(move, undo);
+            // quiet: no capture, promotion or offer of an exchange, and not ordered first by the table or a killer
+            var quietMove = moveScores[i] < KILLER_SCORE && !undo.promoted && board.getCaptureSources(!isAIsTurn) == 0;
+            if (futile && quietMove && i > 0) {
+                board.unmakeMove(undo);
+                // fail soft: the margin is what the move was assumed to stay below
+                best = Math.max(best, staticEval + FUTILITY_MARGIN * depth);
+                continue;
+            }
+            var reduction = 0;
+            if (options.lateMoveReductions && quietMove && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_INDEX) {
+                reduction = depth >= 6 && i >= 2 * LMR_MIN_INDEX ? 2 : 1;
+            }
+            var score = searchChild(!isAIsTurn, alpha, beta, depth, ply, i, reduction);
+            board.unmakeMove(undo);
+            if (aborted) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(move, ply);
+            }
+            if (alpha >= beta) {
+                updateCutoffStatistics(move, i, depth, ply, isAIsTurn);
+                transpositionTable.store(hash, best, TranspositionTable.LOWER_BOUND, depth, Move.from(move), Move.to(move));
+                return best;
+            }
+        }
+
+        var bound = best <= alphaAtStart ? TranspositionTable.UPPER_BOUND : TranspositionTable.EXACT;
+        if (bestMove == NO_MOVE) transpositionTable.store(hash, best, bound, depth, -1, -1);
+        else transpositionTable.store(hash, best, bound, depth, Move.from(bestMove), Move.to(bestMove));
+
+        return best;
+    }
+
+    // Resolves the captures at the horizon with the capture generator only. Capturing is mandatory,
+    // so the side to move may only stand pat (take the evaluation) if it has no capture.
+    // No table, captures are ordered by the pieces they take, kings count double.
+    // Its nodes count against the limits like the full-width ones, MAX_PLY only keeps capture chains inside the buffers.
+    private float quiescence(boolean isAIsTurn, float alpha, float beta, int ply) {
+        pvLength[ply] = ply;
+        stats.quiescenceNodes++;
+        // node limit, deadline and stop flag
+        if (countNode()) return 0;
+
+        var tablebaseScore = probeTablebase(isAIsTurn, ply);
+        if (!Float.isNaN(tablebaseScore)) return tablebaseScore;
+
+        // capture chains deeper than the move buffers are cut off and evaluated as they stand
+        var moves = moveBuffers[ply];
+        var count = ply < MAX_PLY - 1 ? board.genCaptures(isAIsTurn, moves) : 0;
+        if (count == 0) {
+            if (!board.hasLegalMove(isAIsTurn)) return -WIN;
+            return isAIsTurn ? getBoardScore(board) : -getBoardScore(board);
+        }
+
+        var moveScores = scoreBuffers[ply];
+        var opponentKings = board.kings(!isAIsTurn);
+        for (int i = 0; i < count; i++) {
+            var captured = Move.capturedSquares(moves[i]);
+            moveScores[i] = Integer.bitCount(captured) + Integer.bitCount(captured & opponentKings);
+        }
+
+        var best = -WIN;
+        var undo = undos[ply];
+        for (int i = 0; i < count; i++) {
+            var move = pickNextMove(moves, moveScores, count, i);
+
+            board.makeMove(move, undo);
+            var score = -quiescence(!isAIsTurn, -beta, -alpha, ply + 1);
+            board.unmakeMove(undo);
+            if (aborted) return 0;
+
+            if (score > best) best = score;
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    // true once the search has to stop
+    private boolean countNode() {
+        if ((++stats.nodes & (NODE_CHECK_INTERVAL - 1)) == 0 && abortAllowed && timeManager.shouldStop(stats.nodes)) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    // a position since the last capture or man move comes back, or the draw rule ends the game
+    // once is enough inside the search: whoever repeated it can repeat it again
+    private boolean isDraw(boolean isAIsTurn, int ply) {
+        var sinceProgress = undos[ply - 1].reversible ? pliesSinceProgress[ply - 1] + 1 : 0;
+        var hash = board.getHash(isAIsTurn);
+        pliesSinceProgress[ply] = sinceProgress;
+        keys[rootIndex + ply] = hash;
+
+        if (drawPlies > 0 && sinceProgress >= drawPlies) return true;
+        // 4 plies at least: both sides have to move away and back
+        for (int i = 4; i <= sinceProgress; i += 2) {
+            if (keys[rootIndex + ply - i] == hash) return true;
+        }
+        return false;
+    }
+
+    // exact result once few enough pieces are left, faster wins score higher, NaN if not in the database
+    private float probeTablebase(boolean isAIsTurn, int ply) {
+        if (tablebase == null || Integer.bitCount(board.pieces(true) | board.pieces(false)) > tablebase.getMaxPieces()) return Float.NaN;
+
+        var value = tablebase.probe(board, isAIsTurn);
+        // isAIsTurn = true: good for the side to move
+        return value == Tablebase.NOT_FOUND ? Float.NaN : Tablebase.toScore(value, true, TABLEBASE_WIN - ply);
+    }
+
+    // move is the new best move at ply, followed by the child's variation
+    private void updatePv(long move, int ply) {
+        pv[ply][ply] = move;
+        var childLength = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    private void scoreMoves(long[] moves, int[] moveScores, int count, long entry, int ply, boolean isAIsTurn) {
+        var hasTableMove = entry != 0 && TranspositionTable.hasMove(entry);
+        var pvMove = followPv && ply < previousPvLength ? previousPv[ply] : NO_MOVE;
+        var side = isAIsTurn ? 1 : 0;
+        var pvMoveFound = false;
+
+        for (int i = 0; i < count; i++) {
+            var move = moves[i];
+            var from = Move.from(move);
+            var to = Move.to(move);
+            var packed = from * 32 + to;
+
+            if (move == pvMove) {
+                moveScores[i] = PV_MOVE_SCORE;
+                pvMoveFound = true;
+            } else if (hasTableMove && from == TranspositionTable.moveFrom(entry) && to == TranspositionTable.moveTo(entry)) {
+                moveScores[i] = TT_MOVE_SCORE;
+            } else if (Move.isCapture(move)) {
+                moveScores[i] = CAPTURE_SCORE + Integer.bitCount(Move.capturedSquares(move));
+            } else if (packed == killers[ply][0]) {
+                moveScores[i] = KILLER_SCORE + 1;
+            } else if (packed == killers[ply][1]) {
+                moveScores[i] = KILLER_SCORE;
+            } else {
+                moveScores[i] = history[side][from][to];
+            }
+        }
+        if (!pvMoveFound) followPv = false;
+    }
+
+    // selection sort one step at a time, after a cutoff the rest never gets sorted
+    private static long pickNextMove(long[] moves, int[] moveScores, int count, int index) {
+        var best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (moveScores[i] > moveScores[best]) best = i;
+        }
+        if (best != index) {
+            var score = moveScores[index];
+            moveScores[index] = moveScores[best];
+            moveScores[best] = score;
+
+            var move = moves[index];
+            moves[index] = moves[best];
+            moves[best] = move;
+        }
+        return moves[index];
+    }
+
+    // index: position of the move in the searched order
+    private void updateCutoffStatistics(long move, int index, int depth, int ply, boolean isAIsTurn) {
+        stats.cutoffs++;
+        if (index == 0) stats.firstMoveCutoffs++;
+
+        // captures are forced and ordered by themselves
+        if (Move.isCapture(move)) return;
+
+        var from = Move.from(move);
+        var to = Move.to(move);
+        var packed = from * 32 + to;
+        if (killers[ply][0] != packed) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = packed;
+        }
+
+        var side = isAIsTurn ? 1 : 0;
+        var bonus = Math.max(depth, 1) * Math.max(depth, 1);
+        history[side][from][to] += bonus;
+        if (history[side][from][to] >= KILLER_SCORE) {
+            for (var fromSquare : history[side]) {
+                for (int toSquare = 0; toSquare < fromSquare.length; toSquare++) fromSquare[toSquare] /= 2;
+            }
+        }
+    }
+
+    // good for ai => high score, kept up to date by makeMove
+    static float getBoardScore(Board board) {
+        return Evaluation.score(board);
+    }
+}
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JDK Flight Recorder event for one search of Engine, record with -XX:StartFlightRecording
+@Name("checkers.Search")
+@Label("Search")
+@Category("Checkers AI")
+@Description("One search for a move, counters of all threads")
+class SearchEvent extends Event {
+    @Label("Depth")
+    int depth;
+    @Label("Score")
+    float score;
+    @Label("Threads")
+    int threads;
+    @Label("Nodes")
+    long nodes;
+    @Label("Quiescence Nodes")
+    long quiescenceNodes;
+    @Label("Cutoffs")
+    long cutoffs;
+    @Label("First Move Cutoff Rate")
+    float firstMoveCutoffRate;
+    @Label("Table Hit Rate")
+    float tableHitRate;
+    @Label("Branching Factor")
+    float branchingFactor;
+}
@@ -0,0 +1,19 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JDK Flight Recorder event for one completed iteration of the main search thread
+@Name("checkers.SearchIteration")
+@Label("Search Iteration")
+@Category("Checkers AI")
+@Description("One completed iteration of iterative deepening")
+class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+    @Label("Score")
+    float score;
+    @Label("Nodes")
+    long nodes;
+}
@@ -0,0 +1,63 @@
+import java.util.ArrayList;
+
+// Switches for the selective parts of the search, so SelfPlay can measure each one on its own.
+// Only read by the search threads, set them before searching.
+class SearchOptions {
+    // quiet moves late in the move order are searched less deep, a fail high is searched again at full depth
+    boolean lateMoveReductions = true;
+    // near the leaves quiet positions far above beta return at once, quiet moves far below alpha are skipped
+    boolean futilityPruning = true;
+    // near the leaves quiet positions far below alpha fail low, unless a depth 1 null window search gets back above it
+    boolean razoring = true;
+    // a shallow search clearly above beta is taken as a cutoff of the deep one
+    boolean probCut = true;
+
+    static SearchOptions all() {
+        return new SearchOptions();
+    }
+
+    // "all", "none", or a comma separated list of lmr, futility, razoring, probcut, where -name turns one off,
+    // e.g. "lmr,futility" (only those) or "-probcut" (all but that one)
+    static SearchOptions parse(String text) {
+        var options = new SearchOptions();
+        // a list of names turns on only those, a list of -names turns off only those
+        if (!text.trim().startsWith("-")) options.lateMoveReductions = options.futilityPruning = options.razoring = options.probCut = false;
+        for (var part : text.split(",")) {
+            var name = part.trim();
+            var enabled = !name.startsWith("-");
+            if (!enabled) name = name.substring(1);
+
+            switch (name) {
+                case "all":
+                case "none":
+                    options.lateMoveReductions = options.futilityPruning = options.razoring = options.probCut = name.equals("all");
+                    break;
+                case "lmr":
+                    options.lateMoveReductions = enabled;
+                    break;
+                case "futility":
+                    options.futilityPruning = enabled;
+                    break;
+                case "razoring":
+                    options.razoring = enabled;
+                    break;
+                case "probcut":
+                    options.probCut = enabled;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown search option: " + part);
+            }
+        }
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        var names = new ArrayList<String>();
+        if (lateMoveReductions) names.add("lmr");
+        if (futilityPruning) names.add("futility");
+        if (razoring) names.add("razoring");
+        if (probCut) names.add("probcut");
+        return names.isEmpty() ? "none" : String.join(",", names);
+    }
+}
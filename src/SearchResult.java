@@ -0,0 +1,33 @@
+class SearchResult {
+    // Search.NO_MOVE if there is no legal move
+    long move;
+    int[] fromXY;
+    int[] toXY;
+    float score;
+    // principal variation starting with move, as far as it is known
+    long[] pv;
+    // last completed depth
+    int depth;
+    // counters of all threads, of the main thread only in a result given to an AnalysisListener
+    SearchStats stats;
+    float seconds;
+    boolean isBookMove;
+    // the best root moves with their own variations, best first, lines[0] is move / score / pv
+    Line[] lines;
+
+    static class Line {
+        long move;
+        // good for the side to move
+        float score;
+        long[] pv;
+        // a search stopped early leaves the lines it had searched again one depth deeper than the others
+        int depth;
+
+        Line(long move, float score, long[] pv, int depth) {
+            this.move = move;
+            this.score = score;
+            this.pv = pv;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Locale;
+
+// Counters of a search. Each thread bumps its own object with plain field increments,
+// parallelSearch sums the helpers into the main thread's one at the end.
+class SearchStats {
+    long nodes;
+    // nodes of the quiescence search, where only captures are searched
+    long quiescenceNodes;
+    long cutoffs;
+    // cutoffs by the first move searched, the closer to cutoffs the better the move ordering
+    long firstMoveCutoffs;
+    long tableProbes;
+    long tableHits;
+    long searches;
+    float seconds;
+
+    // per completed iteration of the main thread, index = depth
+    final long[] iterationNodes;
+    final float[] iterationSeconds;
+    // deepest completed iteration
+    int depth;
+
+    SearchStats(int maxDepth) {
+        iterationNodes = new long[maxDepth + 1];
+        iterationSeconds = new float[maxDepth + 1];
+    }
+
+    void finishIteration(int depth, long nodesAtStart, float secondsAtStart, float secondsNow) {
+        this.depth = depth;
+        iterationNodes[depth] = nodes - nodesAtStart;
+        iterationSeconds[depth] = secondsNow - secondsAtStart;
+    }
+
+    // counters of a helper thread of the same search
+    void addThread(SearchStats helper) {
+        nodes += helper.nodes;
+        quiescenceNodes += helper.quiescenceNodes;
+        cutoffs += helper.cutoffs;
+        firstMoveCutoffs += helper.firstMoveCutoffs;
+        tableProbes += helper.tableProbes;
+        tableHits += helper.tableHits;
+    }
+
+    // a copy with the iterations, for a listener while the search goes on counting
+    SearchStats snapshot(float secondsNow) {
+        var copy = new SearchStats(iterationNodes.length - 1);
+        copy.add(this);
+        copy.seconds = secondsNow;
+        copy.depth = depth;
+        System.arraycopy(iterationNodes, 0, copy.iterationNodes, 0, iterationNodes.length);
+        System.arraycopy(iterationSeconds, 0, copy.iterationSeconds, 0, iterationSeconds.length);
+        return copy;
+    }
+
+    // totals over several searches, the iterations are not added up
+    void add(SearchStats search) {
+        addThread(search);
+        searches += search.searches;
+        seconds += search.seconds;
+    }
+
+    double nodesPerSecond() {
+        return seconds > 0 ? nodes / seconds : 0;
+    }
+    double firstMoveCutoffRate() {
+        return cutoffs > 0 ? (double) firstMoveCutoffs / cutoffs : 0;
+    }
+    double tableHitRate() {
+        return tableProbes > 0 ? (double) tableHits / tableProbes : 0;
+    }
+    // nodes of the last iteration / nodes of the one before, 0 if there are not two iterations
+    double branchingFactor() {
+        // totals keep no iterations
+        if (depth < 1 || depth >= iterationNodes.length || iterationNodes[depth - 1] == 0) return 0;
+        return (double) iterationNodes[depth] / iterationNodes[depth - 1];
+    }
+
+    @Override
+    public String toString() {
+        var text = String.format(Locale.ROOT, "searches %d, nodes %d (%.0f/s), quiescence %.1f%%, cutoffs %d (first move %.1f%%), table hits %.1f%%",
+                searches, nodes, nodesPerSecond(), nodes > 0 ? 100.0 * quiescenceNodes / nodes : 0,
+                cutoffs, 100 * firstMoveCutoffRate(), 100 * tableHitRate());
+        return branchingFactor() > 0 ? text + String.format(Locale.ROOT, ", branching %.2f", branchingFactor()) : text;
+    }
+}
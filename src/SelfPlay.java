@@ -0,0 +1,149 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+// Plays engine A against engine B without any window, many games at once on a thread pool.
+// usage: java SelfPlay [openingPlies] [nodesA] [nodesB] [poolThreads] [maxGames] [optionsA] [optionsB] [recordFile] [networkA] [networkB]
+//
+// Every opening of openingPlies plies is played twice, once with each engine moving first.
+// Each game gets new single threaded engines, moves are node limited so a run can be repeated exactly.
+// optionsA and optionsB are SearchOptions.parse strings, e.g. "all" against "all,-probcut".
+// With a recordFile every game is written to it with the search scores, see GameRecordWriter.
+// networkA and networkB are NetworkTrainer files, "-" for the recordFile or a network => none.
+public class SelfPlay {
+    private static final int MIN_DEPTH = 5;
+    private static final int TRANSPOSITION_TABLE_MB = 8;
+    private static final int PROGRESS_INTERVAL = 100;
+
+    private static final int A_WON = 1, DRAW = 0, B_WON = -1;
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        var openingPlies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        var nodesA = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        var nodesB = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+        var poolThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        var maxGames = args.length > 4 ? Integer.parseInt(args[4]) : Integer.MAX_VALUE;
+        var optionsA = SearchOptions.parse(args.length > 5 ? args[5] : "all");
+        var optionsB = SearchOptions.parse(args.length > 6 ? args[6] : "all");
+        var records = args.length > 7 && !args[7].equals("-") ? GameRecordWriter.create(Paths.get(args[7])) : null;
+        var networkA = loadNetwork(args.length > 8 ? args[8] : "-");
+        var networkB = loadNetwork(args.length > 9 ? args[9] : "-");
+
+        var openings = openings(openingPlies);
+        // the player moves first, so the AI is to move after an odd number of plies
+        var isAIsTurn = openingPlies % 2 == 1;
+        var pool = Executors.newFixedThreadPool(poolThreads);
+        try {
+            var completion = new ExecutorCompletionService<Integer>(pool);
+
+            var games = 0;
+            for (var opening : openings) {
+                for (var aMovesFirst : new boolean[]{true, false}) {
+                    if (games == maxGames) break;
+                    completion.submit(() -> playGame(opening, isAIsTurn, aMovesFirst, nodesA, nodesB, optionsA, optionsB, networkA, networkB, records));
+                    games++;
+                }
+            }
+            System.out.println(games + " games from " + openings.size() + " openings on " + poolThreads + " threads, A: " + optionsA
+                    + (networkA != null ? " with " + args[8] : "") + ", B: " + optionsB + (networkB != null ? " with " + args[9] : ""));
+
+            var startTime = System.nanoTime();
+            int aWins = 0, bWins = 0, draws = 0;
+            for (int i = 1; i <= games; i++) {
+                var result = completion.take().get();
+                if (result == A_WON) aWins++;
+                else if (result == B_WON) bWins++;
+                else draws++;
+
+                if (i % PROGRESS_INTERVAL == 0 || i == games) {
+                    System.out.printf("%d games in %.0fs: A won %d, B won %d, draws %d, %s%n",
+                            i, (System.nanoTime() - startTime) / 1e9, aWins, bWins, draws, elo(aWins, bWins, draws));
+                }
+            }
+        } finally {
+            // a failed game ends the run, the pool's threads must not keep the JVM alive
+            pool.shutdownNow();
+            if (records != null) records.close();
+        }
+    }
+
+    // the board of every distinct opening
+    static List<Board> openings(int plies) {
+        var openings = new ArrayList<Board>();
+        addOpenings(new Board(), false, plies, new HashSet<>(), openings);
+        return openings;
+    }
+
+    private static void addOpenings(Board board, boolean isAIsTurn, int plies, Set<Long> seen, List<Board> openings) {
+        var moves = new long[Board.MAX_MOVES];
+        var count = board.genAllMoves(isAIsTurn, moves);
+        if (count == 0) return;
+
+        if (plies == 0) {
+            if (seen.add(board.getHash(isAIsTurn))) openings.add(new Board(board));
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            var undo = board.makeMove(moves[i]);
+            addOpenings(board, !isAIsTurn, plies - 1, seen, openings);
+            board.unmakeMove(undo);
+        }
+    }
+
+    // A_WON, DRAW or B_WON
+    private static int playGame(Board opening, boolean isAIsTurn, boolean aMovesFirst, long nodesA, long nodesB,
+                                SearchOptions optionsA, SearchOptions optionsB, Network networkA, Network networkB, GameRecordWriter records) {
+        var a = new Engine(new TranspositionTable(TRANSPOSITION_TABLE_MB), null, null, optionsA, networkA, 1, MIN_DEPTH);
+        var b = new Engine(new TranspositionTable(TRANSPOSITION_TABLE_MB), null, null, optionsB, networkB, 1, MIN_DEPTH);
+        var board = new Board(opening);
+        var history = new GameHistory(board, isAIsTurn, GameHistory.DEFAULT_DRAW_PLIES);
+        var record = new GameRecord(board, isAIsTurn);
+        var aIsAI = aMovesFirst == isAIsTurn;
+
+        // the draw rule ends every game: men only move forward and pieces only get fewer
+        while (true) {
+            var aToMove = aIsAI == isAIsTurn;
+            var gameOver = board.gameIsOver(isAIsTurn, history);
+            if (gameOver != -1) {
+                record.result = gameOver;
+                if (records != null) write(records, record);
+                if (gameOver == 2) return DRAW;
+                // no moves left: the side to move lost
+                return aToMove ? B_WON : A_WON;
+            }
+
+            var engine = aToMove ? a : b;
+            var result = engine.search(board, isAIsTurn, history, TimeManager.nodeLimited(aToMove ? nodesA : nodesB), false);
+            record.add(board, isAIsTurn, result.move, result.isBookMove ? Float.NaN : result.score);
+            history.add(board, board.makeMove(result.move));
+            isAIsTurn = !isAIsTurn;
+        }
+    }
+
+    // "-" => none, a file which can not be loaded ends the run
+    private static Network loadNetwork(String file) throws IOException {
+        return file.equals("-") ? null : Network.open(Paths.get(file));
+    }
+
+    private static void write(GameRecordWriter records, GameRecord record) {
+        try {
+            records.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String elo(int wins, int losses, int draws) {
+        var games = wins + losses + draws;
+        var score = (wins + draws / 2.0) / games;
+        if (score <= 0 || score >= 1) return String.format("score %.1f%%", score * 100);
+        return String.format("score %.1f%%, A %+.0f elo", score * 100, -400 * Math.log10(1 / score - 1));
+    }
+}
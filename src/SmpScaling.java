@@ -0,0 +1,40 @@
+// Measures the time the parallel search needs to reach a fixed depth for 1, 2, 4, ... threads.
+// usage: java SmpScaling [depth] [maxThreads]
+public class SmpScaling {
+    // player's first moves, the AI is to move in every benchmark position
+    private static final int[][][] OPENINGS = {
+            {{0, 2}, {1, 3}},
+            {{2, 2}, {3, 3}},
+            {{4, 2}, {5, 3}},
+            {{6, 2}, {7, 3}},
+    };
+
+    public static void main(String[] args) {
+        var depth = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        var maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        var singleThreadTime = 0.0;
+        // 1, 2, 4, ... and finally maxThreads itself
+        for (int threads = 1; threads <= maxThreads; threads = threads == maxThreads ? threads + 1 : Math.min(threads * 2, maxThreads)) {
+            var seconds = timeToDepth(depth, threads);
+            if (threads == 1) singleThreadTime = seconds;
+
+            System.out.printf("threads %2d: %7.2fs to depth %d, speedup %.2f%n", threads, seconds, depth, singleThreadTime / seconds);
+        }
+    }
+
+    private static double timeToDepth(int depth, int threads) {
+        var total = 0.0;
+        for (var opening : OPENINGS) {
+            var board = new Board();
+            board.makeMove(opening[0], opening[1]);
+
+            // fresh table, otherwise later runs profit from earlier ones
+            var transpositionTable = new TranspositionTable(64);
+            var startTime = System.nanoTime();
+            Search.parallelSearch(board, transpositionTable, null, SearchOptions.all(), null, threads, 5, 1, TimeManager.fixedDepth(depth), null);
+            total += (System.nanoTime() - startTime) / 1e9;
+        }
+        return total;
+    }
+}
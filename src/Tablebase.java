@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Endgame database built by TablebaseGenerator, memory-mapped and probed by the search.
+//
+// File layout (big endian):
+//   int magic, int version, int maxPieces, int classCount
+//   per material class: int aiMen, int aiKings, int playerMen, int playerKings, int size, long offset
+//   per material class at offset: size bytes with the AI to move, then size bytes with the player to move
+//
+// One byte per position, from the side to move: 0 => draw, v > 0 => wins in v plies,
+// v < 0 => loses in -v - 1 plies (-1 => no moves left). Distances saturate at 127 plies.
+// Positions are indexed by the men on the 28 squares they can stand on, then the kings on the squares left free.
+// Every side of a class is mapped on its own, so the file may be larger than one mapping (2 GB).
+class Tablebase {
+    static final int MAGIC = 0x434B5442; // "CKTB"
+    static final int VERSION = 2;
+    static final int NOT_FOUND = Integer.MIN_VALUE;
+    static final int MAX_DISTANCE = 127;
+
+    // men never stand on the row they are promoted on
+    static final int AI_MEN_SQUARES = 0xFFFFFFF0;
+    static final int PLAYER_MEN_SQUARES = 0x0FFFFFFF;
+
+    // BINOMIAL[n][k] = n choose k
+    private static final int[][] BINOMIAL = new int[33][33];
+
+    static {
+        for (int n = 0; n <= 32; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) BINOMIAL[n][k] = BINOMIAL[n-1][k-1] + (k <= n - 1 ? BINOMIAL[n-1][k] : 0);
+        }
+    }
+
+    private final int maxPieces;
+    // [aiMen][aiKings][playerMen][playerKings][isAIsTurn ? 0 : 1], null => class not in the file
+    private final MappedByteBuffer[][][][][] classes;
+
+    private Tablebase(FileChannel channel) throws IOException {
+        var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 16));
+        if (header.limit() < 16 || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) throw new IllegalArgumentException("not a tablebase file");
+
+        maxPieces = header.getInt(8);
+        var classCount = header.getInt(12);
+        var n = maxPieces + 1;
+        classes = new MappedByteBuffer[n][n][n][n][];
+
+        var entries = channel.map(FileChannel.MapMode.READ_ONLY, 16, classCount * 28L);
+        for (int i = 0; i < classCount; i++) {
+            var entry = i * 28;
+            int aiMen = entries.getInt(entry), aiKings = entries.getInt(entry + 4);
+            int playerMen = entries.getInt(entry + 8), playerKings = entries.getInt(entry + 12);
+            var size = entries.getInt(entry + 16);
+            var offset = entries.getLong(entry + 20);
+
+            classes[aiMen][aiKings][playerMen][playerKings] = new MappedByteBuffer[]{
+                    channel.map(FileChannel.MapMode.READ_ONLY, offset, size),
+                    channel.map(FileChannel.MapMode.READ_ONLY, offset + size, size)};
+        }
+    }
+
+    static Tablebase open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mappings stay valid after the channel is closed
+            return new Tablebase(channel);
+        }
+    }
+
+    // null if the file is missing or broken, everything runs without a database
+    static Tablebase load(String file) {
+        var path = Paths.get(file);
+        if (!Files.exists(path)) return null;
+
+        try {
+            return open(path);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Tablebase not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    int getMaxPieces() {
+        return maxPieces;
+    }
+
+    // raw byte value (see above) or NOT_FOUND if the position is not covered
+    int probe(Board board, boolean isAIsTurn) {
+        int aiMen = Integer.bitCount(board.aiMen), aiKings = Integer.bitCount(board.aiKings);
+        int playerMen = Integer.bitCount(board.playerMen), playerKings = Integer.bitCount(board.playerKings);
+        if (aiMen + aiKings + playerMen + playerKings > maxPieces) return NOT_FOUND;
+
+        var sides = classes[aiMen][aiKings][playerMen][playerKings];
+        // men on the row they would have been promoted on have no index
+        if (sides == null || ((board.aiMen & ~AI_MEN_SQUARES) | (board.playerMen & ~PLAYER_MEN_SQUARES)) != 0) return NOT_FOUND;
+
+        return sides[isAIsTurn ? 0 : 1].get(index(board.aiMen, board.aiKings, board.playerMen, board.playerKings));
+    }
+
+    // good for ai => high score, wins closer to the root score higher
+    static float toScore(int value, boolean isAIsTurn, float winScore) {
+        if (value == 0) return 0;
+
+        var sideToMoveWins = value > 0;
+        var distance = sideToMoveWins ? value : -value - 1;
+        var score = winScore - distance;
+        return sideToMoveWins == isAIsTurn ? score : -score;
+    }
+
+    // positions of one material class, before overlapping men are ruled out
+    static long classSize(int aiMen, int aiKings, int playerMen, int playerKings) {
+        var free = 32 - aiMen - playerMen;
+        return (long) BINOMIAL[28][aiMen] * BINOMIAL[28][playerMen] * BINOMIAL[free][aiKings] * BINOMIAL[free - aiKings][playerKings];
+    }
+
+    // below classSize, which must fit an int (TablebaseGenerator makes sure)
+    static int index(int aiMen, int aiKings, int playerMen, int playerKings) {
+        int aiMenCount = Integer.bitCount(aiMen), aiKingsCount = Integer.bitCount(aiKings);
+        int playerMenCount = Integer.bitCount(playerMen), playerKingsCount = Integer.bitCount(playerKings);
+        var men = aiMen | playerMen;
+        var free = 32 - aiMenCount - playerMenCount;
+
+        var index = rank(aiMen >>> 4);
+        index = index * BINOMIAL[28][playerMenCount] + rank(playerMen);
+        index = index * BINOMIAL[free][aiKingsCount] + rank(squeeze(aiKings, men));
+        return index * BINOMIAL[free - aiKingsCount][playerKingsCount] + rank(squeeze(playerKings, men | aiKings));
+    }
+
+    // inverse of index, returns {aiMen, aiKings, playerMen, playerKings}
+    static int[] unindex(int index, int aiMen, int aiKings, int playerMen, int playerKings) {
+        var free = 32 - aiMen - playerMen;
+        int aiKingsSize = BINOMIAL[free][aiKings], playerKingsSize = BINOMIAL[free - aiKings][playerKings];
+        var playerKingsRank = index % playerKingsSize;
+        index /= playerKingsSize;
+        var aiKingsRank = index % aiKingsSize;
+        index /= aiKingsSize;
+
+        var squares = new int[4];
+        squares[2] = unrank(index % BINOMIAL[28][playerMen], playerMen);
+        squares[0] = unrank(index / BINOMIAL[28][playerMen], aiMen) << 4;
+        var men = squares[0] | squares[2];
+        squares[1] = unsqueeze(unrank(aiKingsRank, aiKings), men);
+        squares[3] = unsqueeze(unrank(playerKingsRank, playerKings), men | squares[1]);
+        return squares;
+    }
+
+    // the squares numbered over the ones not occupied
+    private static int squeeze(int squares, int occupied) {
+        var squeezed = 0;
+        for (; squares != 0; squares &= squares - 1) {
+            squeezed |= 1 << Integer.bitCount(((squares & -squares) - 1) & ~occupied);
+        }
+        return squeezed;
+    }
+
+    private static int unsqueeze(int squeezed, int occupied) {
+        var squares = 0;
+        var free = ~occupied;
+        for (int i = 0; free != 0; free &= free - 1, i++) {
+            if ((squeezed & 1 << i) != 0) squares |= free & -free;
+        }
+        return squares;
+    }
+
+    // colex rank of a set of squares among all sets of the same size
+    private static int rank(int squares) {
+        var rank = 0;
+        for (int k = 1; squares != 0; squares &= squares - 1, k++) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(squares)][k];
+        }
+        return rank;
+    }
+
+    private static int unrank(int rank, int count) {
+        var squares = 0;
+        for (int k = count; k > 0; k--) {
+            var square = k - 1;
+            while (square + 1 < 32 && BINOMIAL[square + 1][k] <= rank) square++;
+            rank -= BINOMIAL[square][k];
+            squares |= 1 << square;
+        }
+        return squares;
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+// Generates a small endgame database and checks every stored value against the values of the position's children,
+// read back through Tablebase.probe: no moves => lost at once, a win is the shortest win over a child which loses,
+// a loss is the longest loss when every child wins, anything else a draw. Also checks that every index of a
+// position unindexes to it and back, and that random positions index into their class and come back.
+// usage: java TablebaseCheck [maxPieces] [random positions] [seed]
+public class TablebaseCheck {
+    private static final int MAX_PIECES = 3;
+    // the index does not need the database, random positions go up to what TablebaseGenerator accepts
+    private static final int RANDOM_MAX_PIECES = 7;
+
+    public static void main(String[] args) throws IOException {
+        var maxPieces = args.length > 0 ? Integer.parseInt(args[0]) : MAX_PIECES;
+        var randomPositions = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        var random = new Random(args.length > 2 ? Long.parseLong(args[2]) : 1);
+
+        var file = Files.createTempFile("TablebaseCheck", ".ckdb");
+        Tablebase tablebase;
+        try {
+            var generator = new TablebaseGenerator(maxPieces);
+            generator.generate(new PrintStream(OutputStream.nullOutputStream()));
+            generator.write(file.toString());
+            tablebase = Tablebase.open(file);
+        } finally {
+            Files.delete(file);
+        }
+
+        var positions = 0L;
+        var board = new Board();
+        var moves = new long[Board.MAX_MOVES];
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (int aiMen = 0; aiMen <= pieces; aiMen++) {
+                for (int aiKings = 0; aiMen + aiKings <= pieces; aiKings++) {
+                    for (int playerMen = 0; aiMen + aiKings + playerMen <= pieces; playerMen++) {
+                        var playerKings = pieces - aiMen - aiKings - playerMen;
+                        if (aiMen + aiKings == 0 || playerMen + playerKings == 0) continue;
+
+                        var size = Tablebase.classSize(aiMen, aiKings, playerMen, playerKings);
+                        for (int index = 0; index < size; index++) {
+                            var squares = Tablebase.unindex(index, aiMen, aiKings, playerMen, playerKings);
+                            if (Integer.bitCount(squares[0] | squares[1] | squares[2] | squares[3]) != pieces) continue;
+
+                            var where = " in class " + aiMen + " " + aiKings + " " + playerMen + " " + playerKings + " at index " + index;
+                            if (Tablebase.index(squares[0], squares[1], squares[2], squares[3]) != index) Checks.fail("index differs" + where);
+                            board.setPieces(squares[0], squares[1], squares[2], squares[3]);
+                            for (var isAIsTurn : new boolean[]{true, false}) checkValue(tablebase, board, isAIsTurn, moves, where);
+                            positions++;
+                        }
+                    }
+                }
+            }
+        }
+        checkRandomPositions(random, randomPositions);
+        System.out.println(positions + " positions up to " + maxPieces + " pieces ok");
+    }
+
+    private static void checkValue(Tablebase tablebase, Board board, boolean isAIsTurn, long[] moves, String where) {
+        var value = tablebase.probe(board, isAIsTurn);
+        where = " with " + (isAIsTurn ? "the AI" : "the player") + " to move" + where;
+        if (value == Tablebase.NOT_FOUND) Checks.fail("not found" + where);
+
+        var count = board.genAllMoves(isAIsTurn, moves);
+        var shortestWin = Integer.MAX_VALUE;
+        var longestLoss = -1;
+        var allChildrenWon = true;
+        for (var move : Arrays.copyOf(moves, count)) {
+            var child = new Board(board);
+            child.makeMove(move);
+            // the side to move of the child has no pieces left => it lost, not in the database
+            var childValue = child.pieces(!isAIsTurn) == 0 ? -1 : tablebase.probe(child, !isAIsTurn);
+            if (childValue == Tablebase.NOT_FOUND) Checks.fail("child not found after " + Move.format(new long[]{move}, 1) + where);
+
+            if (childValue < 0) shortestWin = Math.min(shortestWin, -childValue);
+            if (childValue > 0) longestLoss = Math.max(longestLoss, childValue + 1);
+            else allChildrenWon = false;
+        }
+
+        int expected;
+        if (count == 0) expected = -1;
+        else if (shortestWin != Integer.MAX_VALUE) expected = Math.min(shortestWin, Tablebase.MAX_DISTANCE);
+        else if (allChildrenWon) expected = -Math.min(longestLoss, Tablebase.MAX_DISTANCE) - 1;
+        else expected = 0;
+        if (value != expected) Checks.fail("value " + value + " instead of " + expected + " from its children" + where);
+    }
+
+    private static void checkRandomPositions(Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            // one piece of each side first, men off the row they would be promoted on
+            int occupied = 0, aiMen = 0, aiKings = 0, playerMen = 0, playerKings = 0;
+            var pieces = 2 + random.nextInt(RANDOM_MAX_PIECES - 1);
+            for (int piece = 0; piece < pieces; piece++) {
+                var square = random.nextInt(32);
+                var kind = piece < 2 ? piece * 2 + random.nextInt(2) : random.nextInt(4);
+                var squares = kind == 0 ? Tablebase.AI_MEN_SQUARES : kind == 2 ? Tablebase.PLAYER_MEN_SQUARES : -1;
+                if ((occupied & 1 << square) != 0 || (squares & 1 << square) == 0) {
+                    piece--;
+                    continue;
+                }
+                occupied |= 1 << square;
+                if (kind == 0) aiMen |= 1 << square;
+                else if (kind == 1) aiKings |= 1 << square;
+                else if (kind == 2) playerMen |= 1 << square;
+                else playerKings |= 1 << square;
+            }
+
+            int aiMenCount = Integer.bitCount(aiMen), aiKingsCount = Integer.bitCount(aiKings);
+            int playerMenCount = Integer.bitCount(playerMen), playerKingsCount = Integer.bitCount(playerKings);
+            var index = Tablebase.index(aiMen, aiKings, playerMen, playerKings);
+            var where = " for " + aiMen + " " + aiKings + " " + playerMen + " " + playerKings;
+            if (index < 0 || index >= Tablebase.classSize(aiMenCount, aiKingsCount, playerMenCount, playerKingsCount)) {
+                Checks.fail("index " + index + " outside its class" + where);
+            }
+            var squares = Tablebase.unindex(index, aiMenCount, aiKingsCount, playerMenCount, playerKingsCount);
+            if (squares[0] != aiMen || squares[1] != aiKings || squares[2] != playerMen || squares[3] != playerKings) {
+                Checks.fail("unindex differs" + where);
+            }
+        }
+    }
+}
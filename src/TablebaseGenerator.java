@@ -0,0 +1,229 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Builds the endgame database for all positions with up to maxPieces pieces by retrograde analysis.
+// Every class is held in memory as arrays, so a class may have no more positions than an array holds (up to 7 pieces).
+// usage: java TablebaseGenerator [maxPieces] [file]
+//
+// Material classes are solved in an order where every capture or promotion leads into a class
+// which is already done (fewer pieces, or as many pieces but fewer men). Inside a class pass n
+// settles exactly the positions which are won or lost in n plies, so distances are exact.
+public class TablebaseGenerator {
+    // the largest arrays the JVM allocates
+    private static final int MAX_CLASS_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int maxPieces;
+    private final List<int[]> classes = new ArrayList<>();
+    // finished classes, [aiMen][aiKings][playerMen][playerKings][isAIsTurn ? 0 : 1]
+    private final short[][][][][][] solved;
+
+    // values while generating use the file's encoding, but are exact: 0 => draw or unknown
+    private short[][] current;
+    private boolean[][] resolved;
+    private int[] currentClass;
+    private int maxDistance;
+
+    private final Board board = new Board();
+    private final long[] moves = new long[Board.MAX_MOVES];
+    private final MoveUndo undo = new MoveUndo();
+
+    TablebaseGenerator(int maxPieces) {
+        if (maxPieces < 2) throw new IllegalArgumentException("maxPieces must be 2 or more, not " + maxPieces);
+        this.maxPieces = maxPieces;
+        var n = maxPieces + 1;
+        solved = new short[n][n][n][n][][];
+
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (int men = 0; men <= pieces; men++) {
+                for (int aiMen = 0; aiMen <= men; aiMen++) {
+                    var playerMen = men - aiMen;
+                    for (int aiKings = 0; aiKings <= pieces - men; aiKings++) {
+                        var playerKings = pieces - men - aiKings;
+                        if (aiMen + aiKings == 0 || playerMen + playerKings == 0) continue;
+
+                        var size = Tablebase.classSize(aiMen, aiKings, playerMen, playerKings);
+                        if (size > MAX_CLASS_SIZE) {
+                            throw new IllegalArgumentException(maxPieces + " pieces are too many, class " + Arrays.toString(new int[]{aiMen, aiKings, playerMen, playerKings})
+                                    + " has " + size + " positions, at most " + MAX_CLASS_SIZE + " fit an array");
+                        }
+                        classes.add(new int[]{aiMen, aiKings, playerMen, playerKings});
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var maxPieces = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        var file = args.length > 1 ? args[1] : "tablebase.ckdb";
+
+        var generator = new TablebaseGenerator(maxPieces);
+        var startTime = System.nanoTime();
+        generator.generate(System.out);
+        generator.write(file);
+        System.out.printf("%d classes up to %d pieces written to %s in %.1fs%n", generator.classes.size(), maxPieces, file, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    // progress: a line per solved class
+    void generate(PrintStream progress) {
+        for (var materialClass : classes) {
+            solveClass(materialClass);
+            progress.println("solved " + Arrays.toString(materialClass) + ", longest win so far " + maxDistance + " plies");
+        }
+    }
+
+    private void solveClass(int[] materialClass) {
+        currentClass = materialClass;
+        var size = (int) Tablebase.classSize(materialClass[0], materialClass[1], materialClass[2], materialClass[3]);
+        current = new short[][]{new short[size], new short[size]};
+        resolved = new boolean[][]{new boolean[size], new boolean[size]};
+
+        // open positions per side to move, shrinks with every pass
+        var open = new int[2][];
+        var openCount = new int[2];
+        for (int side = 0; side < 2; side++) {
+            open[side] = new int[size];
+            for (int index = 0; index < size; index++) {
+                if (setBoard(index)) open[side][openCount[side]++] = index;
+                else resolved[side][index] = true;
+            }
+        }
+
+        var distanceAtStart = maxDistance;
+        for (int pass = 0; ; pass++) {
+            var settled = 0;
+            var settledIndices = new ArrayList<int[]>();
+
+            for (int side = 0; side < 2; side++) {
+                var isAIsTurn = side == 0;
+                var kept = 0;
+
+                for (int i = 0; i < openCount[side]; i++) {
+                    var index = open[side][i];
+                    setBoard(index);
+
+                    var value = evaluate(isAIsTurn, pass);
+                    if (value != 0) {
+                        // written after the pass, so this pass only sees distances below pass
+                        settledIndices.add(new int[]{side, index, value});
+                        settled++;
+                    } else {
+                        open[side][kept++] = index;
+                    }
+                }
+                openCount[side] = kept;
+            }
+
+            for (var s : settledIndices) {
+                current[s[0]][s[1]] = (short) s[2];
+                resolved[s[0]][s[1]] = true;
+            }
+            if (settled > 0) maxDistance = Math.max(maxDistance, pass);
+
+            // nothing settled and no finished class has longer distances left to feed in
+            if (settled == 0 && pass > distanceAtStart + 1) break;
+        }
+
+        // whatever is still open can not be forced either way
+        for (int side = 0; side < 2; side++) {
+            for (int i = 0; i < openCount[side]; i++) resolved[side][open[side][i]] = true;
+        }
+        solved[materialClass[0]][materialClass[1]][materialClass[2]][materialClass[3]] = current;
+    }
+
+    // value of the board if it is decided in exactly pass plies, else 0
+    private short evaluate(boolean isAIsTurn, int pass) {
+        var count = board.genAllMoves(isAIsTurn, moves);
+        if (count == 0) return (short) (pass == 0 ? -1 : 0);
+
+        var shortestWin = Integer.MAX_VALUE;
+        var longestLoss = 0;
+        var allChildrenWon = true;
+
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i], undo);
+            var child = lookup(!isAIsTurn);
+            board.unmakeMove(undo);
+
+            if (child == Short.MIN_VALUE) {
+                allChildrenWon = false;
+            } else if (child < 0) {
+                // opponent loses in -child - 1 plies
+                shortestWin = Math.min(shortestWin, -child);
+                allChildrenWon = false;
+            } else if (child > 0) {
+                longestLoss = Math.max(longestLoss, child + 1);
+            } else {
+                allChildrenWon = false;
+            }
+        }
+
+        if (shortestWin == pass) return (short) pass;
+        if (shortestWin == Integer.MAX_VALUE && allChildrenWon && longestLoss == pass) return (short) (-pass - 1);
+        return 0;
+    }
+
+    // value of the board with the given side to move, Short.MIN_VALUE if not known yet
+    private short lookup(boolean isAIsTurn) {
+        if (board.pieces(isAIsTurn) == 0) return -1;
+
+        int aiMen = Integer.bitCount(board.aiMen), aiKings = Integer.bitCount(board.aiKings);
+        int playerMen = Integer.bitCount(board.playerMen), playerKings = Integer.bitCount(board.playerKings);
+        var index = Tablebase.index(board.aiMen, board.aiKings, board.playerMen, board.playerKings);
+        var side = isAIsTurn ? 0 : 1;
+
+        if (aiMen == currentClass[0] && aiKings == currentClass[1] && playerMen == currentClass[2] && playerKings == currentClass[3]) {
+            return resolved[side][index] ? current[side][index] : Short.MIN_VALUE;
+        }
+        return solved[aiMen][aiKings][playerMen][playerKings][side][index];
+    }
+
+    // false if the index is no legal position: men on the same square
+    private boolean setBoard(int index) {
+        var squares = Tablebase.unindex(index, currentClass[0], currentClass[1], currentClass[2], currentClass[3]);
+        board.aiMen = squares[0];
+        board.aiKings = squares[1];
+        board.playerMen = squares[2];
+        board.playerKings = squares[3];
+
+        var all = squares[0] | squares[1] | squares[2] | squares[3];
+        var pieceCount = currentClass[0] + currentClass[1] + currentClass[2] + currentClass[3];
+        return Integer.bitCount(all) == pieceCount;
+    }
+
+    void write(String file) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(Tablebase.VERSION);
+            out.writeInt(maxPieces);
+            out.writeInt(classes.size());
+
+            long offset = 16 + classes.size() * 28L;
+            for (var c : classes) {
+                var size = (int) Tablebase.classSize(c[0], c[1], c[2], c[3]);
+                for (var count : c) out.writeInt(count);
+                out.writeInt(size);
+                out.writeLong(offset);
+                offset += 2L * size;
+            }
+
+            for (var c : classes) {
+                for (var values : solved[c[0]][c[1]][c[2]][c[3]]) {
+                    for (var value : values) out.writeByte(saturate(value));
+                }
+            }
+        }
+    }
+
+    private static int saturate(short value) {
+        if (value > 0) return Math.min(value, Tablebase.MAX_DISTANCE);
+        if (value < 0) return Math.max(value, -Tablebase.MAX_DISTANCE - 1);
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+// Decides when a search has to stop. Shared by all threads of one search.
+// soft deadline: no new iteration is started after it, hard deadline: the running iteration is cut off.
+class TimeManager {
+    // an iteration takes a multiple of the previous one, starting one after half the time rarely finishes
+    private static final float SOFT_TIME_RATIO = 0.5f;
+
+    private final long startTime;
+    private final long softDeadline;
+    private final long hardDeadline;
+    private final long maxNodes;
+    final int maxDepth;
+    private volatile boolean stopped;
+
+    TimeManager(float softSeconds, float hardSeconds, int maxDepth, long maxNodes) {
+        this.startTime = System.nanoTime();
+        this.softDeadline = startTime + toNanos(softSeconds);
+        this.hardDeadline = startTime + toNanos(hardSeconds);
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+    }
+
+    static TimeManager forMove(float maxSearchTime) {
+        return forMove(maxSearchTime, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+    // whichever limit comes first
+    static TimeManager forMove(float maxSearchTime, int maxDepth, long maxNodes) {
+        return new TimeManager(maxSearchTime * SOFT_TIME_RATIO, maxSearchTime, maxDepth, maxNodes);
+    }
+    static TimeManager fixedDepth(int depth) {
+        return new TimeManager(Float.MAX_VALUE, Float.MAX_VALUE, depth, Long.MAX_VALUE);
+    }
+    // runs until stop() is called
+    static TimeManager infinite() {
+        return new TimeManager(Float.MAX_VALUE, Float.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+    // single threaded node limited searches are deterministic, used for regression runs
+    static TimeManager nodeLimited(long nodes) {
+        return new TimeManager(Float.MAX_VALUE, Float.MAX_VALUE, Integer.MAX_VALUE, nodes);
+    }
+
+    private static long toNanos(float seconds) {
+        return seconds >= Long.MAX_VALUE / 1e9f ? Long.MAX_VALUE / 2 : (long) (seconds * 1e9);
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    // polled by the search every few nodes, once it returns true it stays true for all threads
+    boolean shouldStop(long nodes) {
+        if (!stopped && (nodes >= maxNodes || System.nanoTime() - hardDeadline > 0)) stopped = true;
+        return stopped;
+    }
+
+    boolean canStartIteration() {
+        return !stopped && System.nanoTime() - softDeadline < 0;
+    }
+
+    float elapsedSeconds() {
+        return (System.nanoTime() - startTime) / 1e9f;
+    }
+}
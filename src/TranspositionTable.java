@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+// Fixed size hash table of searched positions, two entries per bucket:
+// slot 0 keeps the deepest search, slot 1 is always replaced.
+// Shared by all search threads without locks: the key is stored xor-ed with the entry,
+// so an entry torn by two threads writing at once simply does not match on probe.
+class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER_BOUND = 1;
+    static final int UPPER_BOUND = 2;
+
+    // packed entry: score bits 0-31, depth 32-39, bound 40-41, from 42-46, to 47-51, has-move 52, valid 53
+    private static final long HAS_MOVE = 1L << 52;
+    private static final long VALID = 1L << 53;
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    TranspositionTable(int sizeMB) {
+        long entries = Math.max(2, (long) sizeMB * 1024 * 1024 / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 30));
+
+        keys = new long[buckets * 2];
+        data = new long[buckets * 2];
+        bucketMask = buckets - 1;
+    }
+
+    // 0 => position not in the table
+    long probe(long key) {
+        int i = index(key);
+        for (int slot = i; slot < i + 2; slot++) {
+            long entry = data[slot];
+            if (entry != 0 && (keys[slot] ^ entry) == key) return entry;
+        }
+        return 0;
+    }
+
+    // from / to are squares of the best move, -1 if there is none
+    void store(long key, float score, int bound, int depth, int from, int to) {
+        long entry = VALID
+                | (Float.floatToRawIntBits(score) & 0xFFFFFFFFL)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 32)
+                | ((long) bound << 40);
+        if (from >= 0) entry |= HAS_MOVE | ((long) from << 42) | ((long) to << 47);
+
+        int i = index(key);
+        long deepEntry = data[i];
+        if (deepEntry == 0 || (keys[i] ^ deepEntry) == key || depth >= depth(deepEntry)) {
+            keys[i] = key ^ entry;
+            data[i] = entry;
+        } else {
+            keys[i+1] = key ^ entry;
+            data[i+1] = entry;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * 2;
+    }
+
+    static float score(long entry) {
+        return Float.intBitsToFloat((int) entry);
+    }
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+    static boolean hasMove(long entry) {
+        return (entry & HAS_MOVE) != 0;
+    }
+    static int moveFrom(long entry) {
+        return (int) (entry >>> 42) & 0x1F;
+    }
+    static int moveTo(long entry) {
+        return (int) (entry >>> 47) & 0x1F;
+    }
+}